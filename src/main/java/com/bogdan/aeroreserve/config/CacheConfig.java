@@ -1,13 +1,20 @@
 package com.bogdan.aeroreserve.config;
 
+import com.bogdan.aeroreserve.service.cache.CacheEntryWeigher;
+import com.bogdan.aeroreserve.service.cache.FlightDetailsCacheLoader;
+import com.bogdan.aeroreserve.service.cache.HotKeyTracker;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Конфигурация кэширования приложения с использованием Caffeine.
@@ -20,19 +27,49 @@ public class CacheConfig {
     /**
      * Создает и настраивает менеджер кэша для приложения.
      * Использует Caffeine в качестве реализации кэша.
+     * Кэш flightDetails (отдельные рейсы по id) обновляет горячие записи в фоне
+     * до истечения срока жизни, поэтому популярные рейсы не истекают под нагрузкой.
+     * Кэши хранят неизменяемые снимки и ограничены оценкой занимаемой памяти, а не числом
+     * записей: список рейсов и отдельный рейс занимают в бюджете разный объем.
+     * Обращения к кэшам выборочно учитываются для статистики самых запрашиваемых ключей.
      *
+     * @param flightDetailsCacheLoader загрузчик записей кэша flightDetails
+     * @param hotKeyTracker учет часто запрашиваемых ключей
+     * @param timeToLive время жизни записи после записи
+     * @param refreshAfter возраст записи, после которого обращение к ней запускает фоновое обновление
+     * @param maxSizePerCache бюджет памяти каждого кэша
      * @return сконфигурированный менеджер кэша
      */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("flights", "seats");
+    public CacheManager cacheManager(FlightDetailsCacheLoader flightDetailsCacheLoader,
+                                     HotKeyTracker hotKeyTracker,
+                                     @Value("${app.cache.time-to-live:PT10M}") Duration timeToLive,
+                                     @Value("${app.cache.refresh-after:PT8M}") Duration refreshAfter,
+                                     @Value("${app.cache.max-size-per-cache:16MB}") DataSize maxSizePerCache) {
+        CacheEntryWeigher weigher = new CacheEntryWeigher();
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return hotKeyTracker.instrument(name, cache, isAllowNullValues());
+            }
+        };
         cacheManager.setCaffeine(Caffeine.newBuilder()
-                // Максимальное количество записей в кэше
-                .maximumSize(1000)
+                // Максимальный суммарный размер записей кэша в байтах
+                .maximumWeight(maxSizePerCache.toBytes())
+                .weigher(weigher)
                 // Время жизни записи в кэше после записи
-                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .expireAfterWrite(timeToLive)
                 // Включение сбора статистики по кэшу
                 .recordStats());
+        cacheManager.setCacheNames(List.of("flights", "fares"));
+        cacheManager.registerCustomCache("flightDetails", Caffeine.newBuilder()
+                .maximumWeight(maxSizePerCache.toBytes())
+                .weigher(weigher)
+                .expireAfterWrite(timeToLive)
+                // Упреждающее обновление: старое значение отдается, пока новое загружается в фоне
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .build(flightDetailsCacheLoader));
         return cacheManager;
     }
-}
\ No newline at end of file
+}
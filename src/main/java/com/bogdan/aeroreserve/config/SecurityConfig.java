@@ -37,6 +37,8 @@ public class SecurityConfig {
                         .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll()
                         // Разрешаем доступ к общедоступным страницам
                         .requestMatchers("/", "/css/**", "/js/**", "/register", "/login").permitAll()
+                        // Проверки состояния узла для балансировщика
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
                         // Требуем роль ADMIN для доступа к админским эндпоинтам
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         // Все остальные запросы требуют аутентификации
@@ -1,17 +1,15 @@
 package com.bogdan.aeroreserve.controller;
 
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
 import com.bogdan.aeroreserve.entity.BookingEntity;
-import com.bogdan.aeroreserve.entity.FlightEntity;
 import com.bogdan.aeroreserve.entity.UserEntity;
 import com.bogdan.aeroreserve.enums.BookingStatus;
 import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.service.cache.CacheStatisticsService;
 import com.bogdan.aeroreserve.service.core.BookingService;
 import com.bogdan.aeroreserve.service.core.FlightService;
 import com.bogdan.aeroreserve.service.core.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -35,6 +33,7 @@ public class AdminController {
     private final UserService userService;
     private final FlightService flightService;
     private final BookingService bookingService;
+    private final CacheStatisticsService cacheStatisticsService;
 
     /**
      * Отображает главную панель администратора
@@ -77,20 +76,22 @@ public class AdminController {
      * Отображает страницу управления рейсами с пагинацией
      *
      * @param model модель для передачи данных в представление
-     * @param page номер страницы (по умолчанию 0)
-     * @param size размер страницы (по умолчанию 10)
+     * @param cursor токен позиции страницы (отсутствует для первой страницы)
+     * @param size размер страницы (по умолчанию 10, приводится к 1..100)
      * @return имя шаблона управления рейсами
      */
     @GetMapping("/flights")
     public String manageFlights(Model model,
-                                @RequestParam(defaultValue = "0") int page,
+                                @RequestParam(required = false) String cursor,
                                 @RequestParam(defaultValue = "10") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<FlightEntity> flights = flightService.getAllFlights(pageable);
+        int pageSize = FlightPageDTO.clampSize(size);
+        FlightPageDTO flightPage = flightService.getFlightSummaries(cursor, pageSize);
 
-        model.addAttribute("flights", flights);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("pageSize", size);
+        model.addAttribute("flights", flightPage.getFlights());
+        model.addAttribute("nextCursor", flightPage.getNextToken());
+        model.addAttribute("previousCursor", flightPage.getPreviousToken());
+        model.addAttribute("totalItems", flightPage.getTotalItems());
+        model.addAttribute("pageSize", pageSize);
         model.addAttribute("flightStatuses", FlightStatus.values());
         return "admin/flights";
     }
@@ -112,6 +113,18 @@ public class AdminController {
         return "redirect:/admin/flights";
     }
 
+    /**
+     * Отображает статистику кэшей: попадания, загрузки, вытеснения, память и горячие ключи
+     *
+     * @param model модель для передачи данных в представление
+     * @return имя шаблона статистики кэшей
+     */
+    @GetMapping("/caches")
+    public String cacheStatistics(Model model) {
+        model.addAttribute("caches", cacheStatisticsService.getCacheStatistics());
+        return "admin/caches";
+    }
+
     /**
      * Отображает страницу управления бронированиями
      *
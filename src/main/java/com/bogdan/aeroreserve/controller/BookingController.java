@@ -15,6 +15,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 /**
  * Контроллер для управления бронированиями
  * Обрабатывает создание, отмену и возврат бронирований
@@ -77,22 +80,77 @@ public class BookingController {
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
             var booking = bookingService.createBooking(user, flightId, seatNumber, passengerName);
+            if (booking.isEmpty()) {
+                return showBookingError(flightId, seatNumber, "Seat is already booked: " + seatNumber,
+                        userDetails, model);
+            }
 
-            return "redirect:/booking/" + booking.getId() + "/payment";
+            return "redirect:/booking/" + booking.get().getId() + "/payment";
 
         } catch (Exception e) {
+            return showBookingError(flightId, seatNumber, e.getMessage(), userDetails, model);
+        }
+    }
+
+    /**
+     * Обрабатывает создание группового бронирования нескольких мест на рейсе
+     *
+     * @param flightId идентификатор рейса
+     * @param seatNumbers номера мест
+     * @param passengerNames имена пассажиров в порядке мест
+     * @param userDetails данные аутентифицированного пользователя
+     * @param model модель для передачи данных в представление
+     * @return перенаправление на страницу оплаты группы при успехе или возврат к форме при ошибке
+     */
+    @PostMapping("/book/{flightId}/group")
+    public String bookGroup(
+            @PathVariable Long flightId,
+            @RequestParam List<String> seatNumbers,
+            @RequestParam List<String> passengerNames,
+            @AuthenticationPrincipal UserDetails userDetails,
+            Model model) {
+
+        String seats = String.join(", ", seatNumbers);
+        try {
             UserEntity user = userService.findByEmail(userDetails.getUsername())
                     .orElseThrow(() -> new RuntimeException("User not found"));
-            model.addAttribute("user", user);
 
-            model.addAttribute("error", e.getMessage());
-            model.addAttribute("flight", flightService.getFlightById(flightId).orElse(null));
-            model.addAttribute("availableSeats", flightService.getAvailableSeats(flightId));
-            model.addAttribute("seatNumber", seatNumber);
-            return "booking-form";
+            var booking = bookingService.createGroupBooking(user, flightId, seatNumbers, passengerNames);
+            if (booking.isEmpty()) {
+                return showBookingError(flightId, seats, "Some of the seats are already booked: " + seats,
+                        userDetails, model);
+            }
+
+            return "redirect:/booking/" + booking.get().getId() + "/payment";
+
+        } catch (Exception e) {
+            return showBookingError(flightId, seats, e.getMessage(), userDetails, model);
         }
     }
 
+    /**
+     * Возвращает форму бронирования с сообщением об ошибке
+     *
+     * @param flightId идентификатор рейса
+     * @param seatNumber номер места
+     * @param error текст ошибки
+     * @param userDetails данные аутентифицированного пользователя
+     * @param model модель для передачи данных в представление
+     * @return имя шаблона формы бронирования
+     */
+    private String showBookingError(Long flightId, String seatNumber, String error,
+                                    UserDetails userDetails, Model model) {
+        UserEntity user = userService.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        model.addAttribute("user", user);
+
+        model.addAttribute("error", error);
+        model.addAttribute("flight", flightService.getFlightById(flightId).orElse(null));
+        model.addAttribute("availableSeats", flightService.getAvailableSeats(flightId));
+        model.addAttribute("seatNumber", seatNumber);
+        return "booking-form";
+    }
+
     /**
      * Отображает страницу оплаты бронирования
      *
@@ -119,8 +177,20 @@ public class BookingController {
             return "redirect:/dashboard?alreadyPaid=true";
         }
 
+        // Участник группы оплачивается через ведущее бронирование
+        if (booking.getGroupLead() != null) {
+            return "redirect:/booking/" + booking.getGroupLead().getId() + "/payment";
+        }
+
+        List<BookingEntity> group = bookingService.getGroupBookings(booking);
+        BigDecimal totalAmount = group.stream()
+                .map(BookingEntity::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
         model.addAttribute("user", user);
         model.addAttribute("booking", booking);
+        model.addAttribute("groupBookings", group);
+        model.addAttribute("totalAmount", totalAmount);
         model.addAttribute("payment", booking.getPayment());
         model.addAttribute("stripePublicKey", "pk_test_TYooMQauvdEDq54NiTphI7jx");
 
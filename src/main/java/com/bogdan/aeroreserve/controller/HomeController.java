@@ -1,14 +1,14 @@
 package com.bogdan.aeroreserve.controller;
 
-import com.bogdan.aeroreserve.entity.FlightEntity;
+import com.bogdan.aeroreserve.dto.ExploreDestinationDTO;
+import com.bogdan.aeroreserve.dto.FareCalendarDayDTO;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
 import com.bogdan.aeroreserve.entity.UserEntity;
+import com.bogdan.aeroreserve.enums.SeatClass;
 import com.bogdan.aeroreserve.service.core.FlightService;
 import com.bogdan.aeroreserve.service.core.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -16,8 +16,13 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 
 /**
  * Контроллер для главной страницы и поиска рейсов
@@ -32,18 +37,21 @@ public class HomeController {
     private final FlightService flightService;
     private final UserService userService;
 
+    // Количество дней до и после выбранной даты в полосе цен результатов поиска
+    private static final int FARE_STRIP_DAYS = 3;
+
     /**
      * Отображает главную страницу со списком рейсов
      *
      * @param userDetails данные аутентифицированного пользователя
-     * @param page номер страницы для пагинации
-     * @param size размер страницы для пагинации
+     * @param cursor токен позиции страницы (отсутствует для первой страницы)
+     * @param size размер страницы для пагинации (приводится к 1..100)
      * @param model модель для передачи данных в представление
      * @return имя шаблона главной страницы
      */
     @GetMapping("/")
     public String home(@AuthenticationPrincipal UserDetails userDetails,
-                       @RequestParam(defaultValue = "0") int page,
+                       @RequestParam(required = false) String cursor,
                        @RequestParam(defaultValue = "10") int size,
                        Model model) {
 
@@ -53,14 +61,8 @@ public class HomeController {
             model.addAttribute("user", user);
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("departureTime").ascending());
-        Page<FlightEntity> flightsPage = flightService.getAllFlights(pageable);
-
-        model.addAttribute("flights", flightsPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", flightsPage.getTotalPages());
-        model.addAttribute("totalItems", flightsPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        int pageSize = FlightPageDTO.clampSize(size);
+        addFlightPage(model, flightService.getFlightSummaries(cursor, pageSize), pageSize);
 
         return "home";
     }
@@ -72,8 +74,8 @@ public class HomeController {
      * @param to город прилета
      * @param date дата вылета
      * @param userDetails данные аутентифицированного пользователя
-     * @param page номер страницы для пагинации
-     * @param size размер страницы для пагинации
+     * @param cursor токен позиции страницы (отсутствует для первой страницы)
+     * @param size размер страницы для пагинации (приводится к 1..100)
      * @param model модель для передачи данных в представление
      * @return имя шаблона главной страницы с результатами поиска
      */
@@ -83,7 +85,7 @@ public class HomeController {
             @RequestParam String to,
             @RequestParam String date,
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             Model model) {
 
@@ -95,14 +97,12 @@ public class HomeController {
 
         LocalDate searchDate = LocalDate.parse(date);
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("departureTime").ascending());
-        Page<FlightEntity> flightsPage = flightService.searchFlights(from, to, searchDate, pageable);
-
-        model.addAttribute("flights", flightsPage.getContent());
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", flightsPage.getTotalPages());
-        model.addAttribute("totalItems", flightsPage.getTotalElements());
-        model.addAttribute("pageSize", size);
+        int pageSize = FlightPageDTO.clampSize(size);
+        addFlightPage(model, flightService.searchFlights(from, to, searchDate, cursor, pageSize), pageSize);
+        if (cursor == null) {
+            model.addAttribute("connections", flightService.searchConnections(from, to, searchDate));
+        }
+        model.addAttribute("fareCalendar", flightService.getFareCalendar(from, to, searchDate, FARE_STRIP_DAYS));
         model.addAttribute("from", from);
         model.addAttribute("to", to);
         model.addAttribute("date", date);
@@ -110,16 +110,56 @@ public class HomeController {
         return "home";
     }
 
+    /**
+     * Возвращает календарь цен направления: минимальную цену и доступность по дням
+     * в окне ±days дней от даты
+     *
+     * @param from город вылета
+     * @param to город прилета
+     * @param date центральная дата окна
+     * @param days количество дней до и после даты (не более 15)
+     * @return дни окна по возрастанию даты
+     */
+    @GetMapping(value = "/search/calendar", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<FareCalendarDayDTO> fareCalendar(@RequestParam String from,
+                                                 @RequestParam String to,
+                                                 @RequestParam String date,
+                                                 @RequestParam(defaultValue = "3") int days) {
+        return flightService.getFareCalendar(from, to, LocalDate.parse(date), days);
+    }
+
+    /**
+     * Возвращает направления из города за месяц, отсортированные по минимальной цене
+     *
+     * @param from город вылета
+     * @param month месяц вылета в формате yyyy-MM (по умолчанию текущий)
+     * @param maxPrice максимальная цена (необязательно)
+     * @return направления с минимальной ценой и самым дешевым рейсом
+     */
+    @GetMapping(value = "/explore", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<ExploreDestinationDTO> explore(@RequestParam String from,
+                                               @RequestParam(required = false) String month,
+                                               @RequestParam(required = false) BigDecimal maxPrice) {
+        YearMonth exploreMonth = month != null ? YearMonth.parse(month) : YearMonth.now();
+        return flightService.exploreDestinations(from, exploreMonth, maxPrice);
+    }
+
     /**
      * Отображает детальную информацию о рейсе
      *
      * @param id идентификатор рейса
+     * @param partySize количество пассажиров для подбора соседних мест (необязательно)
+     * @param seatClass класс обслуживания для подбора соседних мест
      * @param userDetails данные аутентифицированного пользователя
      * @param model модель для передачи данных в представление
      * @return имя шаблона детальной информации о рейсе
      */
     @GetMapping("/flight/{id}")
     public String flightDetails(@PathVariable Long id,
+                                @RequestParam(required = false) Integer partySize,
+                                @RequestParam(defaultValue = "ECONOMY") SeatClass seatClass,
                                 @AuthenticationPrincipal UserDetails userDetails,
                                 Model model) {
         if (userDetails != null) {
@@ -131,6 +171,35 @@ public class HomeController {
         model.addAttribute("flight", flightService.getFlightById(id)
                 .orElseThrow(() -> new RuntimeException("Flight not found")));
         model.addAttribute("availableSeats", flightService.getAvailableSeats(id));
+
+        if (partySize != null && partySize > 1) {
+            model.addAttribute("partySize", partySize);
+            model.addAttribute("seatClass", seatClass);
+            model.addAttribute("seatSuggestions", flightService.suggestAdjacentSeats(id, seatClass, partySize));
+        }
         return "flight-details";
     }
-}
\ No newline at end of file
+
+    /**
+     * Поток изменений мест рейса (Server-Sent Events).
+     * Событие seats содержит идентификаторы занятых и освободившихся мест,
+     * событие resync означает, что карту мест нужно перезагрузить.
+     *
+     * @param id идентификатор рейса
+     * @return поток событий
+     */
+    @GetMapping(value = "/flight/{id}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter seatStream(@PathVariable Long id) {
+        return flightService.subscribeToSeatChanges(id);
+    }
+
+    private void addFlightPage(Model model, FlightPageDTO flightPage, int size) {
+        model.addAttribute("flights", flightPage.getFlights());
+        model.addAttribute("nextCursor", flightPage.getNextToken());
+        model.addAttribute("previousCursor", flightPage.getPreviousToken());
+        model.addAttribute("totalItems", flightPage.getTotalItems());
+        model.addAttribute("totalEstimated", flightPage.isTotalEstimated());
+        model.addAttribute("pageSize", size);
+    }
+}
@@ -3,6 +3,7 @@ package com.bogdan.aeroreserve.controller;
 import com.bogdan.aeroreserve.dto.PaymentResponseDTO;
 import com.bogdan.aeroreserve.entity.BookingEntity;
 import com.bogdan.aeroreserve.entity.UserEntity;
+import com.bogdan.aeroreserve.enums.BookingStatus;
 import com.bogdan.aeroreserve.service.core.BookingService;
 import com.bogdan.aeroreserve.service.payment.PaymentService;
 import com.bogdan.aeroreserve.service.core.UserService;
@@ -70,6 +71,43 @@ public class PaymentController {
         }
     }
 
+    /**
+     * Состояние платежа бронирования (API endpoint).
+     * Страница оплаты опрашивает его, пока платежное намерение создается асинхронно.
+     *
+     * @param bookingId идентификатор бронирования
+     * @param userDetails данные аутентифицированного пользователя
+     * @return ResponseEntity с client secret, когда платеж готов, или статусом инициализации
+     */
+    @GetMapping("/api/payment/status")
+    @ResponseBody
+    public ResponseEntity<PaymentResponseDTO> paymentStatus(@RequestParam Long bookingId,
+                                                            @AuthenticationPrincipal UserDetails userDetails) {
+        UserEntity user = userService.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        BookingEntity booking = bookingService.getBookingById(bookingId)
+                .orElse(null);
+        if (booking == null || !booking.getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        PaymentResponseDTO response = new PaymentResponseDTO();
+        if (booking.getStatus() == BookingStatus.PAYMENT_INITIALIZING) {
+            response.setStatus("initializing");
+        } else if (booking.getStatus() == BookingStatus.CANCELLED || booking.getPayment() == null) {
+            response.setStatus("error");
+            response.setErrorMessage("Booking is no longer awaiting payment");
+        } else {
+            response = new PaymentResponseDTO(
+                    booking.getPayment().getClientSecret(),
+                    booking.getPayment().getStripePaymentIntentId(),
+                    booking.getPayment().getStatus()
+            );
+        }
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Страница успешной оплаты
      *
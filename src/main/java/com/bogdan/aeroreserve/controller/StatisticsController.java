@@ -1,15 +1,28 @@
 package com.bogdan.aeroreserve.controller;
 
+import com.bogdan.aeroreserve.dto.RollupDTO;
+import com.bogdan.aeroreserve.dto.StatisticsRefreshProgressDTO;
 import com.bogdan.aeroreserve.entity.UserEntity;
+import com.bogdan.aeroreserve.enums.RollupDimension;
+import com.bogdan.aeroreserve.enums.RollupPeriod;
+import com.bogdan.aeroreserve.service.core.BookingRollupService;
 import com.bogdan.aeroreserve.service.core.FlightStatisticsService;
 import com.bogdan.aeroreserve.service.core.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Контроллер для отображения статистики рейсов
@@ -22,6 +35,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RequiredArgsConstructor
 public class StatisticsController {
     private final FlightStatisticsService statisticsService;
+    private final BookingRollupService rollupService;
     private final UserService userService;
 
     /**
@@ -38,6 +52,7 @@ public class StatisticsController {
                 .orElseThrow(()-> new RuntimeException("User not found"));
         model.addAttribute("allStatistics", statisticsService.getAllStatistics());
         model.addAttribute("topFlights", statisticsService.getTopPerformingFlights());
+        model.addAttribute("refreshProgress", statisticsService.getRefreshProgress());
         model.addAttribute("user", user);
         return "statistics-dashboard";
     }
@@ -61,13 +76,55 @@ public class StatisticsController {
     }
 
     /**
-     * Обновляет статистику для всех рейсов
+     * Запускает фоновый пересчет статистики всех рейсов
      *
-     * @return перенаправление на панель статистики
+     * @return перенаправление на панель статистики, где отображается прогресс
      */
     @GetMapping("/statistics/refresh")
     public String refreshStatistics() {
-        statisticsService.initializeStatisticsForAllFlights();
+        statisticsService.refreshAllStatistics();
         return "redirect:/statistics";
     }
-}
\ No newline at end of file
+
+    /**
+     * Возвращает состояние фонового пересчета статистики
+     *
+     * @return прогресс пересчета
+     */
+    @GetMapping(value = "/statistics/refresh/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public StatisticsRefreshProgressDTO refreshStatus() {
+        return statisticsService.getRefreshProgress();
+    }
+
+    /**
+     * Возвращает показатели продаж по направлениям или авиакомпаниям за периоды
+     *
+     * @param period период агрегирования
+     * @param by разрез отчета
+     * @param from первая дата вылета; по умолчанию год назад
+     * @param to последняя дата вылета включительно; по умолчанию сегодня
+     * @return показатели по периодам
+     */
+    @GetMapping(value = "/admin/statistics/rollups", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<RollupDTO> rollups(@RequestParam(defaultValue = "MONTH") RollupPeriod period,
+                                   @RequestParam(defaultValue = "ROUTE") RollupDimension by,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1);
+        return rollupService.getRollups(period, by, start, end);
+    }
+
+    /**
+     * Пересчитывает агрегаты продаж по бронированиям
+     *
+     * @return количество строк агрегатов
+     */
+    @PostMapping(value = "/admin/statistics/rollups/rebuild", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public int rebuildRollups() {
+        return rollupService.rebuildRollups();
+    }
+}
@@ -0,0 +1,76 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика кэша для страницы администратора
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class CacheStatsDTO {
+
+    /**
+     * Название кэша
+     */
+    String name;
+
+    /**
+     * Количество обращений
+     */
+    long requestCount;
+
+    /**
+     * Доля попаданий
+     */
+    double hitRate;
+
+    /**
+     * Доля промахов
+     */
+    double missRate;
+
+    /**
+     * Количество загрузок значений
+     */
+    long loadCount;
+
+    /**
+     * Среднее время загрузки значения в миллисекундах
+     */
+    double averageLoadMillis;
+
+    /**
+     * Количество вытесненных записей
+     */
+    long evictionCount;
+
+    /**
+     * Оценка количества записей
+     */
+    long estimatedSize;
+
+    /**
+     * Оценка занимаемой памяти в байтах
+     */
+    long weightedSize;
+
+    /**
+     * Бюджет памяти в байтах
+     */
+    long maximumWeight;
+
+    /**
+     * Количество записей по семействам ключей (часть ключа до первого дефиса)
+     */
+    Map<String, Long> keyFamilies;
+
+    /**
+     * Самые запрашиваемые ключи
+     */
+    List<HotKeyDTO> hotKeys;
+}
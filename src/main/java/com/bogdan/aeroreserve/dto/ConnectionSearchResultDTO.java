@@ -0,0 +1,34 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Результат поиска маршрутов с пересадками.
+ */
+@Value
+public class ConnectionSearchResultDTO {
+
+    /**
+     * Маршруты с самым ранним прилетом
+     */
+    List<ItineraryDTO> earliestArrival;
+
+    /**
+     * Самые дешевые маршруты
+     */
+    List<ItineraryDTO> cheapest;
+
+    /**
+     * true если поиск остановлен по исчерпанию лимита просмотренных рейсов
+     */
+    boolean truncated;
+
+    /**
+     * @return true если не найдено ни одного маршрута
+     */
+    public boolean isEmpty() {
+        return earliestArrival.isEmpty() && cheapest.isEmpty();
+    }
+}
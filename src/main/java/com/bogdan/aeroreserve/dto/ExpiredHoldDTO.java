@@ -0,0 +1,30 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+/**
+ * DTO (Data Transfer Object) с данными бронирования, отмененного по истечении срока удержания места.
+ */
+@Value
+public class ExpiredHoldDTO {
+
+    /**
+     * Идентификатор бронирования
+     */
+    Long bookingId;
+
+    /**
+     * Идентификатор рейса
+     */
+    Long flightId;
+
+    /**
+     * Идентификатор освобожденного места
+     */
+    Long seatId;
+
+    /**
+     * Идентификатор платежного намерения Stripe, которое нужно отменить (может быть null)
+     */
+    String paymentIntentId;
+}
@@ -0,0 +1,38 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Направление из города с минимальной ценой за месяц.
+ */
+@Value
+public class ExploreDestinationDTO {
+
+    /**
+     * Город прилета
+     */
+    String destination;
+
+    /**
+     * Минимальная цена среди рейсов месяца со свободными местами
+     */
+    BigDecimal lowestPrice;
+
+    /**
+     * Идентификатор самого дешевого рейса
+     */
+    Long flightId;
+
+    /**
+     * Время вылета самого дешевого рейса
+     */
+    LocalDateTime departureTime;
+
+    /**
+     * Количество рейсов направления за месяц со свободными местами
+     */
+    int flights;
+}
@@ -0,0 +1,40 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Минимальная цена и доступность рейсов направления за один день календаря цен.
+ */
+@Value
+public class FareCalendarDayDTO {
+
+    /**
+     * Дата вылета
+     */
+    LocalDate date;
+
+    /**
+     * Минимальная цена среди рейсов со свободными местами или null, если таких рейсов нет
+     */
+    BigDecimal lowestPrice;
+
+    /**
+     * Количество рейсов за день
+     */
+    int flights;
+
+    /**
+     * Суммарное количество свободных мест на рейсах дня
+     */
+    int availableSeats;
+
+    /**
+     * @return true если в этот день есть рейс со свободными местами
+     */
+    public boolean isAvailable() {
+        return lowestPrice != null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Позиция в списке рейсов, упорядоченном по (время вылета, id).
+ * Передается клиенту в виде непрозрачного токена: страница начинается сразу после
+ * позиции (вперед) или заканчивается перед ней (назад), поэтому стоимость запроса
+ * не зависит от номера страницы.
+ */
+@Value
+public class FlightCursor {
+
+    /**
+     * Время вылета граничного рейса
+     */
+    LocalDateTime departureTime;
+
+    /**
+     * Идентификатор граничного рейса
+     */
+    Long id;
+
+    /**
+     * true - страница перед позицией, false - после нее
+     */
+    boolean backward;
+
+    /**
+     * Создает позицию для перехода к следующей странице после указанного рейса
+     */
+    public static FlightCursor after(FlightSummaryDTO flight) {
+        return new FlightCursor(flight.getDepartureTime(), flight.getId(), false);
+    }
+
+    /**
+     * Создает позицию для перехода к предыдущей странице перед указанным рейсом
+     */
+    public static FlightCursor before(FlightSummaryDTO flight) {
+        return new FlightCursor(flight.getDepartureTime(), flight.getId(), true);
+    }
+
+    /**
+     * Кодирует позицию в токен для URL
+     *
+     * @return токен позиции
+     */
+    public String encode() {
+        String raw = (backward ? "b" : "a") + "|" + departureTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает токен позиции. Пустой или поврежденный токен означает первую страницу.
+     *
+     * @param token токен из запроса (может быть null)
+     * @return Optional с позицией или пустой для первой страницы
+     */
+    public static Optional<FlightCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !(parts[0].equals("a") || parts[0].equals("b"))) {
+                return Optional.empty();
+            }
+            return Optional.of(new FlightCursor(
+                    LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]), parts[0].equals("b")));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Сравнивает рейс с позицией в порядке (время вылета, id)
+     *
+     * @param flight сводка рейса
+     * @return отрицательное число, если рейс раньше позиции, 0 - если совпадает, иначе положительное
+     */
+    public int compareFlight(FlightSummaryDTO flight) {
+        int byTime = flight.getDepartureTime().compareTo(departureTime);
+        return byTime != 0 ? byTime : Long.compare(flight.getId(), id);
+    }
+}
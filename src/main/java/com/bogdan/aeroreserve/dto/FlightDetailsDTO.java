@@ -0,0 +1,76 @@
+package com.bogdan.aeroreserve.dto;
+
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемый снимок рейса для страниц рейса и формы бронирования.
+ * Хранится в кэше вместо сущности: не содержит ленивых связей, поэтому
+ * чтение из кэша никогда не обращается к базе данных.
+ */
+@Value
+public class FlightDetailsDTO {
+
+    /**
+     * Идентификатор рейса
+     */
+    Long id;
+
+    /**
+     * Номер рейса
+     */
+    String flightNumber;
+
+    /**
+     * Город вылета
+     */
+    String departureCity;
+
+    /**
+     * Город прилета
+     */
+    String arrivalCity;
+
+    /**
+     * Время вылета
+     */
+    LocalDateTime departureTime;
+
+    /**
+     * Время прилета
+     */
+    LocalDateTime arrivalTime;
+
+    /**
+     * Цена за место
+     */
+    BigDecimal price;
+
+    /**
+     * Статус рейса
+     */
+    FlightStatus status;
+
+    /**
+     * Название авиакомпании
+     */
+    String airlineName;
+
+    /**
+     * Производитель самолета
+     */
+    String aircraftManufacturer;
+
+    /**
+     * Модель самолета
+     */
+    String aircraftModel;
+
+    /**
+     * Общее количество мест в самолете
+     */
+    Integer totalSeats;
+}
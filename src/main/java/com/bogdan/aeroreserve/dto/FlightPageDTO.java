@@ -0,0 +1,81 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Страница сводок рейсов при постраничном просмотре по позиции (keyset).
+ * Вместо номера страницы содержит токены соседних страниц; общее количество
+ * рейсов может быть точным, оценочным или отсутствовать.
+ */
+@Value
+public class FlightPageDTO {
+
+    /**
+     * Максимальный размер страницы, запрашиваемый клиентом
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Рейсы страницы в порядке времени вылета
+     */
+    List<FlightSummaryDTO> flights;
+
+    /**
+     * Токен следующей страницы или null, если страница последняя
+     */
+    String nextToken;
+
+    /**
+     * Токен предыдущей страницы или null, если страница первая
+     */
+    String previousToken;
+
+    /**
+     * Общее количество рейсов или null, если оно не вычислялось
+     */
+    Long totalItems;
+
+    /**
+     * true если общее количество получено по статистике таблицы и является оценкой
+     */
+    boolean totalEstimated;
+
+    /**
+     * Приводит запрошенный размер страницы к диапазону 1..MAX_PAGE_SIZE
+     *
+     * @param size запрошенный размер страницы
+     * @return допустимый размер страницы
+     */
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Формирует страницу по выборке, содержащей на один рейс больше размера страницы.
+     * Лишний рейс только сигнализирует о наличии следующей страницы в направлении чтения.
+     *
+     * @param fetched рейсы в порядке времени вылета, включая возможный лишний рейс
+     * @param size размер страницы
+     * @param cursor позиция, от которой читалась страница (null для первой страницы)
+     * @param totalItems общее количество рейсов (может быть null)
+     * @param totalEstimated является ли количество оценкой
+     * @return страница с токенами соседних страниц
+     */
+    public static FlightPageDTO of(List<FlightSummaryDTO> fetched, int size, FlightCursor cursor,
+                                   Long totalItems, boolean totalEstimated) {
+        boolean backward = cursor != null && cursor.isBackward();
+        boolean more = fetched.size() > size;
+        List<FlightSummaryDTO> flights = !more ? fetched
+                : backward ? fetched.subList(fetched.size() - size, fetched.size())
+                : fetched.subList(0, size);
+
+        boolean hasNext = backward ? !flights.isEmpty() : more;
+        boolean hasPrevious = backward ? more : cursor != null && !flights.isEmpty();
+
+        String nextToken = hasNext ? FlightCursor.after(flights.get(flights.size() - 1)).encode() : null;
+        String previousToken = hasPrevious ? FlightCursor.before(flights.get(0)).encode() : null;
+        return new FlightPageDTO(List.copyOf(flights), nextToken, previousToken, totalItems, totalEstimated);
+    }
+}
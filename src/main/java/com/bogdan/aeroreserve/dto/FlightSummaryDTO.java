@@ -0,0 +1,78 @@
+package com.bogdan.aeroreserve.dto;
+
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import lombok.Value;
+import lombok.With;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемая сводка рейса для списков и результатов поиска.
+ * Содержит только данные, нужные для отображения строки списка,
+ * без сущностей JPA и коллекции мест.
+ */
+@Value
+public class FlightSummaryDTO {
+
+    /**
+     * Идентификатор рейса
+     */
+    Long id;
+
+    /**
+     * Номер рейса
+     */
+    String flightNumber;
+
+    /**
+     * Город вылета
+     */
+    String departureCity;
+
+    /**
+     * Город прилета
+     */
+    String arrivalCity;
+
+    /**
+     * Время вылета
+     */
+    LocalDateTime departureTime;
+
+    /**
+     * Время прилета
+     */
+    LocalDateTime arrivalTime;
+
+    /**
+     * Цена за место
+     */
+    BigDecimal price;
+
+    /**
+     * Название авиакомпании
+     */
+    String airlineName;
+
+    /**
+     * Модель самолета
+     */
+    String aircraftModel;
+
+    /**
+     * Общее количество мест в самолете
+     */
+    Integer totalSeats;
+
+    /**
+     * Статус рейса
+     */
+    FlightStatus status;
+
+    /**
+     * Количество свободных мест
+     */
+    @With
+    Integer availableSeats;
+}
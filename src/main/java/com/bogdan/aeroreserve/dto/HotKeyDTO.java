@@ -0,0 +1,28 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+/**
+ * Часто запрашиваемый ключ кэша по оценке выборки обращений
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class HotKeyDTO {
+
+    /**
+     * Ключ кэша
+     */
+    String key;
+
+    /**
+     * Оценка количества обращений с учетом частоты выборки
+     */
+    long estimatedRequests;
+
+    /**
+     * Доля ключа среди обращений в выборке
+     */
+    double share;
+}
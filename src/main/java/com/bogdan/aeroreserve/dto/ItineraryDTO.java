@@ -0,0 +1,54 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Маршрут с пересадками: последовательность рейсов, где каждый следующий
+ * вылетает из города прилета предыдущего не раньше минимального времени стыковки.
+ */
+@Value
+public class ItineraryDTO {
+
+    /**
+     * Рейсы маршрута в порядке следования
+     */
+    List<FlightSummaryDTO> legs;
+
+    /**
+     * Суммарная стоимость всех рейсов
+     */
+    BigDecimal totalPrice;
+
+    /**
+     * @return количество пересадок
+     */
+    public int getStops() {
+        return legs.size() - 1;
+    }
+
+    /**
+     * @return время вылета первого рейса
+     */
+    public LocalDateTime getDepartureTime() {
+        return legs.get(0).getDepartureTime();
+    }
+
+    /**
+     * @return время прилета последнего рейса
+     */
+    public LocalDateTime getArrivalTime() {
+        return legs.get(legs.size() - 1).getArrivalTime();
+    }
+
+    /**
+     * @return общее время в пути, включая пересадки
+     */
+    public Duration getTotalDuration() {
+        return Duration.between(getDepartureTime(), getArrivalTime());
+    }
+}
@@ -0,0 +1,75 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Показатели продаж направления или авиакомпании за период
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class RollupDTO {
+
+    /**
+     * Первый день периода
+     */
+    LocalDate periodStart;
+
+    /**
+     * Идентификатор маршрута или авиакомпании (0, если у рейсов он не указан)
+     */
+    long key;
+
+    /**
+     * Название направления или авиакомпании
+     */
+    String label;
+
+    /**
+     * Количество бронирований
+     */
+    long bookings;
+
+    /**
+     * Количество подтвержденных пассажиров
+     */
+    long passengers;
+
+    /**
+     * Выручка по оплаченным бронированиям
+     */
+    BigDecimal revenue;
+
+    /**
+     * Количество возвратов
+     */
+    long refunds;
+
+    /**
+     * Сумма возвратов
+     */
+    BigDecimal refundedAmount;
+
+    /**
+     * Количество мест на рейсах периода
+     */
+    long seatsOffered;
+
+    /**
+     * Выручка за вычетом возвратов
+     */
+    public BigDecimal getNetRevenue() {
+        return revenue.subtract(refundedAmount);
+    }
+
+    /**
+     * Заполненность рейсов периода в процентах
+     */
+    public double getLoadFactor() {
+        return seatsOffered == 0 ? 0 : passengers * 100.0 / seatsOffered;
+    }
+}
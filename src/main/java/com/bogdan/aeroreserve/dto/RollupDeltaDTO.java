@@ -0,0 +1,59 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Приращение показателей продаж рейса, накопленное между записями в базу данных
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class RollupDeltaDTO {
+
+    /**
+     * Новые бронирования
+     */
+    int bookings;
+
+    /**
+     * Изменение количества подтвержденных пассажиров
+     */
+    int passengers;
+
+    /**
+     * Выручка по оплаченным бронированиям
+     */
+    BigDecimal revenue;
+
+    /**
+     * Возвращенные бронирования
+     */
+    int refunds;
+
+    /**
+     * Сумма возвратов
+     */
+    BigDecimal refundedAmount;
+
+    /**
+     * Складывает два приращения
+     *
+     * @param other добавляемое приращение
+     * @return сумма приращений
+     */
+    public RollupDeltaDTO plus(RollupDeltaDTO other) {
+        return new RollupDeltaDTO(bookings + other.bookings, passengers + other.passengers,
+                revenue.add(other.revenue), refunds + other.refunds, refundedAmount.add(other.refundedAmount));
+    }
+
+    /**
+     * Проверяет, что приращение ничего не меняет
+     */
+    public boolean isEmpty() {
+        return bookings == 0 && passengers == 0 && refunds == 0
+                && revenue.signum() == 0 && refundedAmount.signum() == 0;
+    }
+}
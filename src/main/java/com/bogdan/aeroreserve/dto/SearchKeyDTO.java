@@ -0,0 +1,28 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+/**
+ * Направление поиска рейсов и количество поисков по нему
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class SearchKeyDTO {
+
+    /**
+     * Город вылета в том виде, в котором его ищут (нижний регистр)
+     */
+    String departureCity;
+
+    /**
+     * Город прилета в том виде, в котором его ищут (нижний регистр)
+     */
+    String arrivalCity;
+
+    /**
+     * Количество поисков
+     */
+    long searches;
+}
@@ -0,0 +1,23 @@
+package com.bogdan.aeroreserve.dto;
+
+import com.bogdan.aeroreserve.enums.SeatClass;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * DTO с рекомендованным блоком соседних мест в одном ряду для группы пассажиров.
+ */
+@Value
+public class SeatBlockDTO {
+
+    /**
+     * Класс обслуживания
+     */
+    SeatClass seatClass;
+
+    /**
+     * Номера мест блока слева направо
+     */
+    List<String> seatNumbers;
+}
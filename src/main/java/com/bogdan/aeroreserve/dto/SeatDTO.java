@@ -0,0 +1,37 @@
+package com.bogdan.aeroreserve.dto;
+
+import com.bogdan.aeroreserve.enums.SeatClass;
+import lombok.Value;
+
+/**
+ * DTO (Data Transfer Object) с состоянием места на рейсе.
+ * Используется вместо SeatEntity там, где не нужна загрузка сущностей.
+ */
+@Value
+public class SeatDTO {
+
+    /**
+     * Идентификатор места
+     */
+    Long id;
+
+    /**
+     * Идентификатор рейса
+     */
+    Long flightId;
+
+    /**
+     * Номер места (например, "12A")
+     */
+    String seatNumber;
+
+    /**
+     * Класс обслуживания
+     */
+    SeatClass seatClass;
+
+    /**
+     * Признак доступности места для бронирования
+     */
+    Boolean available;
+}
@@ -0,0 +1,59 @@
+package com.bogdan.aeroreserve.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние фонового пересчета статистики всех рейсов
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Value
+public class StatisticsRefreshProgressDTO {
+
+    /**
+     * Пересчет выполняется
+     */
+    boolean running;
+
+    /**
+     * Количество рейсов, статистика которых уже пересчитана
+     */
+    long processedFlights;
+
+    /**
+     * Количество рейсов на момент запуска
+     */
+    long totalFlights;
+
+    /**
+     * Время запуска или null, если пересчет не запускался
+     */
+    LocalDateTime startedAt;
+
+    /**
+     * Время завершения или null, если пересчет не завершен
+     */
+    LocalDateTime finishedAt;
+
+    /**
+     * Ошибка, прервавшая пересчет, или null
+     */
+    String error;
+
+    /**
+     * Пересчет, который еще не запускался
+     */
+    public static StatisticsRefreshProgressDTO idle() {
+        return new StatisticsRefreshProgressDTO(false, 0, 0, null, null, null);
+    }
+
+    /**
+     * Процент пересчитанных рейсов
+     */
+    public int getPercent() {
+        return totalFlights > 0 ? (int) Math.min(100, processedFlights * 100 / totalFlights) : (running ? 0 : 100);
+    }
+}
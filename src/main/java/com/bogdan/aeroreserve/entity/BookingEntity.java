@@ -10,9 +10,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings", uniqueConstraints = {
-        @UniqueConstraint(columnNames = {"seat_id"})
-})
+@Table(name = "bookings")
 @Data
 @NoArgsConstructor
 public class BookingEntity {
@@ -32,8 +30,10 @@ public class BookingEntity {
     @JoinColumn(name = "flight_id", nullable = false)
     private FlightEntity flight;
 
-    @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "seat_id", unique = true, nullable = false)
+    // Одно место может иметь несколько бронирований за историю, но только одно активное
+    // (см. частичный уникальный индекс uk_bookings_active_seat)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seat_id", nullable = false)
     private SeatEntity seat;
 
     @Column(name = "passenger_name", nullable = false)
@@ -53,11 +53,20 @@ public class BookingEntity {
     @Column(name = "booking_date", nullable = false, updatable = false)
     private LocalDateTime bookingDate;
 
+    // Срок удержания места для неоплаченного бронирования
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
+    // Ведущее бронирование группы, платеж которого покрывает все места группы
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_lead_id")
+    private BookingEntity groupLead;
+
     /**
      * Конструктор для создания нового бронирования
      */
-    public BookingEntity(UserEntity user, FlightEntity flight, SeatEntity seat, String passengerName) {
-        this.bookingNumber = generateBookingNumber();
+    public BookingEntity(String bookingNumber, UserEntity user, FlightEntity flight, SeatEntity seat, String passengerName) {
+        this.bookingNumber = bookingNumber;
         this.user = user;
         this.flight = flight;
         this.seat = seat;
@@ -67,16 +76,13 @@ public class BookingEntity {
     }
 
     /**
-     * Генерация уникального номера бронирования
-     */
-    private String generateBookingNumber() {
-        return "AR" + System.currentTimeMillis() + (int)(Math.random() * 1000);
-    }
-
-    /**
-     * Проверяет, оплачено ли бронирование
+     * Проверяет, оплачено ли бронирование.
+     * Участник группы считается оплаченным по платежу ведущего бронирования.
      */
     public boolean isPaid() {
+        if (groupLead != null) {
+            return groupLead.isPaid();
+        }
         return payment != null && "succeeded".equals(payment.getStatus());
     }
 
@@ -84,7 +90,8 @@ public class BookingEntity {
      * Проверяет, можно ли отменить бронирование
      */
     public boolean canBeCancelled() {
-        return status == BookingStatus.PENDING_PAYMENT ||
+        return status == BookingStatus.PAYMENT_INITIALIZING ||
+                status == BookingStatus.PENDING_PAYMENT ||
                 status == BookingStatus.CONFIRMED;
     }
 
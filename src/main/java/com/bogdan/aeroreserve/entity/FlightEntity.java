@@ -1,6 +1,7 @@
 package com.bogdan.aeroreserve.entity;
 
 import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.enums.SeatClass;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -36,8 +37,7 @@ import java.util.List;
                         @NamedAttributeNode("route"),
                         @NamedAttributeNode(value = "route", subgraph = "routeCities"),
                         @NamedAttributeNode("aircraft"),
-                        @NamedAttributeNode("airline"),
-                        @NamedAttributeNode("seats")
+                        @NamedAttributeNode("airline")
                 },
                 subgraphs = {
                         @NamedSubgraph(
@@ -83,26 +83,33 @@ public class FlightEntity {
     @OneToMany(mappedBy = "flight", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<SeatEntity> seats = new ArrayList<>();
 
-    @Transient
-    private transient Integer cachedAvailableSeats;
+    // Счетчики свободных мест по классам ведутся запросами SeatRepository,
+    // которые занимают и освобождают места, поэтому JPA их не записывает
+    @Column(name = "available_economy_seats", insertable = false, updatable = false)
+    private int availableEconomySeats;
+
+    @Column(name = "available_business_seats", insertable = false, updatable = false)
+    private int availableBusinessSeats;
+
+    @Column(name = "available_first_class_seats", insertable = false, updatable = false)
+    private int availableFirstClassSeats;
 
+    /**
+     * Возвращает количество свободных мест по счетчикам без загрузки мест рейса
+     */
     public int getAvailableSeats() {
-        if (seats == null) {
-            return aircraft != null ? aircraft.getTotalSeats() : 0;
-        }
-
-        if (cachedAvailableSeats != null) {
-            return cachedAvailableSeats;
-        }
-
-        try {
-            cachedAvailableSeats = (int) seats.stream()
-                    .filter(SeatEntity::isAvailableForBooking)
-                    .count();
-            return cachedAvailableSeats;
-        } catch (Exception e) {
-            return aircraft != null ? aircraft.getTotalSeats() : 0;
-        }
+        return availableEconomySeats + availableBusinessSeats + availableFirstClassSeats;
+    }
+
+    /**
+     * Возвращает количество свободных мест в классе обслуживания
+     */
+    public int getAvailableSeats(SeatClass seatClass) {
+        return switch (seatClass) {
+            case ECONOMY -> availableEconomySeats;
+            case BUSINESS -> availableBusinessSeats;
+            case FIRST -> availableFirstClassSeats;
+        };
     }
 
     public String getDepartureCity() {
@@ -28,9 +28,4 @@ public class TicketEntity {
 
     private LocalDateTime issuedAt = LocalDateTime.now();
     private LocalDateTime boardingTime;
-
-    @PrePersist
-    public void generateTicketNumber() {
-        this.ticketNumber = "TK" + System.currentTimeMillis();
-    }
 }
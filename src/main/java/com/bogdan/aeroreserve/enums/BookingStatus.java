@@ -8,6 +8,11 @@ package com.bogdan.aeroreserve.enums;
  * @version 1.0
  */
 public enum BookingStatus {
+    /**
+     * Инициализация платежа - место занято, платежное намерение в Stripe еще создается
+     */
+    PAYMENT_INITIALIZING,
+
     /**
      * Ожидание оплаты - бронирование создано, но оплата еще не произведена
      */
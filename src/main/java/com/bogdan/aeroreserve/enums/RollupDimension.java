@@ -0,0 +1,19 @@
+package com.bogdan.aeroreserve.enums;
+
+/**
+ * Перечисление разрезов отчета по показателям продаж
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+public enum RollupDimension {
+    /**
+     * По направлениям (маршрутам)
+     */
+    ROUTE,
+
+    /**
+     * По авиакомпаниям
+     */
+    AIRLINE
+}
@@ -0,0 +1,58 @@
+package com.bogdan.aeroreserve.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Перечисление периодов агрегирования показателей продаж
+ * Названия совпадают с единицами date_trunc в PostgreSQL
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+public enum RollupPeriod {
+    /**
+     * День
+     */
+    DAY,
+
+    /**
+     * Неделя, начиная с понедельника
+     */
+    WEEK,
+
+    /**
+     * Календарный месяц
+     */
+    MONTH;
+
+    /**
+     * Возвращает начало периода, в который попадает дата
+     *
+     * @param date дата
+     * @return первый день периода
+     */
+    public LocalDate startOf(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * Возвращает начало следующего периода
+     *
+     * @param date дата
+     * @return первый день следующего периода
+     */
+    public LocalDate nextStart(LocalDate date) {
+        LocalDate start = startOf(date);
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.bogdan.aeroreserve.event;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Событие создания бронирования.
+ * Публикуется в транзакции бронирования и обрабатывается после ее фиксации.
+ */
+@Value
+public class BookingCreatedEvent {
+
+    /**
+     * Идентификатор созданного бронирования
+     */
+    Long bookingId;
+
+    /**
+     * Сумма к оплате (для группы - за все места)
+     */
+    BigDecimal amount;
+}
@@ -0,0 +1,42 @@
+package com.bogdan.aeroreserve.event;
+
+import com.bogdan.aeroreserve.enums.BookingStatus;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Событие изменения статуса бронирований рейса.
+ * Публикуется в транзакции бронирования при создании бронирований, подтверждении,
+ * отмене и возврате; отмена неоплаченных удержаний по истечении срока и при ошибке
+ * создания платежа не публикуется, так как не меняет учитываемых показателей.
+ * Групповое бронирование при создании дает одно событие на все места.
+ */
+@Value
+public class BookingStatusChangedEvent {
+
+    /**
+     * Идентификатор рейса
+     */
+    Long flightId;
+
+    /**
+     * Статус до изменения или null для новых бронирований
+     */
+    BookingStatus previousStatus;
+
+    /**
+     * Новый статус
+     */
+    BookingStatus newStatus;
+
+    /**
+     * Количество бронирований с этим переходом
+     */
+    int bookings;
+
+    /**
+     * Сумма бронирований с этим переходом
+     */
+    BigDecimal amount;
+}
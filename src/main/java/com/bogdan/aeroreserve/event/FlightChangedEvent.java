@@ -0,0 +1,33 @@
+package com.bogdan.aeroreserve.event;
+
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Событие создания или изменения рейса (расписание, цена, статус).
+ */
+@Value
+@AllArgsConstructor
+public class FlightChangedEvent {
+
+    /**
+     * Идентификатор рейса
+     */
+    Long flightId;
+
+    /**
+     * Сводка рейса до изменения или null для нового рейса.
+     * Для события с другого узла содержит только маршрут и время вылета.
+     */
+    FlightSummaryDTO previous;
+
+    /**
+     * Изменение выполнено на другом узле и получено через шину инвалидации кэшей
+     */
+    boolean remote;
+
+    public FlightChangedEvent(Long flightId, FlightSummaryDTO previous) {
+        this(flightId, previous, false);
+    }
+}
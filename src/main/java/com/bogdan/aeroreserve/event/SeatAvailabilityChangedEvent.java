@@ -0,0 +1,37 @@
+package com.bogdan.aeroreserve.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Событие изменения доступности места.
+ * Публикуется после фиксации транзакции, в которой место было занято или освобождено.
+ */
+@Value
+@AllArgsConstructor
+public class SeatAvailabilityChangedEvent {
+
+    /**
+     * Идентификатор рейса
+     */
+    Long flightId;
+
+    /**
+     * Идентификатор места
+     */
+    Long seatId;
+
+    /**
+     * Новое состояние места: true если место освободилось
+     */
+    boolean available;
+
+    /**
+     * Изменение выполнено на другом узле и получено через шину инвалидации кэшей
+     */
+    boolean remote;
+
+    public SeatAvailabilityChangedEvent(Long flightId, Long seatId, boolean available) {
+        this(flightId, seatId, available, false);
+    }
+}
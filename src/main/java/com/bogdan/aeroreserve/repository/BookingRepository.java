@@ -4,10 +4,13 @@ import com.bogdan.aeroreserve.entity.BookingEntity;
 import com.bogdan.aeroreserve.entity.FlightEntity;
 import com.bogdan.aeroreserve.entity.UserEntity;
 import com.bogdan.aeroreserve.enums.BookingStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,7 +19,7 @@ import java.util.Optional;
  * Предоставляет методы для выполнения операций с данными о бронированиях.
  */
 @Repository
-public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
+public interface BookingRepository extends JpaRepository<BookingEntity, Long>, BookingRepositoryCustom {
 
     /**
      * Находит все бронирования пользователя.
@@ -73,4 +76,107 @@ public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
      * @return Optional с найденным бронированием или пустой, если не найдено
      */
     Optional<BookingEntity> findByPaymentStripePaymentIntentId(String paymentIntentId);
-}
\ No newline at end of file
+
+    /**
+     * Отменяет пачку неоплаченных бронирований с истекшим сроком удержания места одним UPDATE.
+     * Кандидаты выбираются по частичному индексу idx_bookings_pending_hold_expiry,
+     * строки, заблокированные другими транзакциями, пропускаются.
+     *
+     * @param now текущее время
+     * @param limit максимальный размер пачки
+     * @return строки вида [booking_id, flight_id, seat_id, stripe_payment_intent_id]
+     */
+    @Query(value = """
+    WITH expired AS (
+        SELECT id FROM bookings
+        WHERE status IN ('PAYMENT_INITIALIZING', 'PENDING_PAYMENT') AND hold_expires_at <= :now
+        ORDER BY hold_expires_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    )
+    UPDATE bookings b SET status = 'CANCELLED'
+    FROM expired e
+    WHERE b.id = e.id
+    RETURNING b.id, b.flight_id, b.seat_id,
+              (SELECT p.stripe_payment_intent_id FROM payments p WHERE p.booking_id = b.id LIMIT 1)
+    """, nativeQuery = true)
+    List<Object[]> cancelExpiredHolds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Находит бронирование по идентификатору вместе с рейсом.
+     *
+     * @param id идентификатор бронирования
+     * @return Optional с найденным бронированием или пустой, если не найдено
+     */
+    @EntityGraph(attributePaths = {"flight"})
+    @Query("SELECT b FROM BookingEntity b WHERE b.id = :id")
+    Optional<BookingEntity> findByIdWithFlight(@Param("id") Long id);
+
+    /**
+     * Меняет статус бронирования, только если текущий статус совпадает с ожидаемым.
+     *
+     * @param id идентификатор бронирования
+     * @param expectedStatus ожидаемый текущий статус
+     * @param newStatus новый статус
+     * @return 1 если статус изменен, 0 если бронирование уже в другом статусе
+     */
+    @Modifying
+    @Query("UPDATE BookingEntity b SET b.status = :newStatus WHERE b.id = :id AND b.status = :expectedStatus")
+    int updateStatusIfCurrent(@Param("id") Long id,
+                              @Param("expectedStatus") BookingStatus expectedStatus,
+                              @Param("newStatus") BookingStatus newStatus);
+
+    /**
+     * Находит участников группового бронирования.
+     *
+     * @param groupLeadId идентификатор ведущего бронирования группы
+     * @return список бронирований участников группы
+     */
+    List<BookingEntity> findByGroupLeadId(Long groupLeadId);
+
+    /**
+     * Меняет статус ведущего бронирования и всех участников группы,
+     * находящихся в ожидаемом статусе.
+     *
+     * @param groupLeadId идентификатор ведущего бронирования группы
+     * @param expectedStatus ожидаемый текущий статус
+     * @param newStatus новый статус
+     * @return количество измененных бронирований
+     */
+    @Modifying
+    @Query("UPDATE BookingEntity b SET b.status = :newStatus " +
+            "WHERE (b.id = :groupLeadId OR b.groupLead.id = :groupLeadId) AND b.status = :expectedStatus")
+    int updateGroupStatusIfCurrent(@Param("groupLeadId") Long groupLeadId,
+                                   @Param("expectedStatus") BookingStatus expectedStatus,
+                                   @Param("newStatus") BookingStatus newStatus);
+
+    /**
+     * Блокирует строку бронирования до конца транзакции.
+     * Используется, чтобы параллельные обработчики одного бронирования выполнялись по очереди.
+     *
+     * @param id идентификатор бронирования
+     * @return идентификатор заблокированного бронирования
+     */
+    @Query(value = "SELECT id FROM bookings WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    /**
+     * Читает текущий статус бронирования из базы данных, минуя загруженную сущность.
+     *
+     * @param id идентификатор бронирования
+     * @return статус бронирования
+     */
+    @Query("SELECT b.status FROM BookingEntity b WHERE b.id = :id")
+    BookingStatus findStatusById(@Param("id") Long id);
+
+    /**
+     * Подтверждает бронирование, если оно еще не подтверждено.
+     *
+     * @param id идентификатор бронирования
+     * @return 1 если статус изменен, 0 если бронирование уже подтверждено
+     */
+    @Modifying
+    @Query("UPDATE BookingEntity b SET b.status = com.bogdan.aeroreserve.enums.BookingStatus.CONFIRMED " +
+            "WHERE b.id = :id AND b.status <> com.bogdan.aeroreserve.enums.BookingStatus.CONFIRMED")
+    int confirmIfNotConfirmed(@Param("id") Long id);
+}
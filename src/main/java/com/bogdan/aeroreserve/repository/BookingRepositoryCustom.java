@@ -0,0 +1,20 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.entity.BookingEntity;
+
+import java.util.List;
+
+/**
+ * Дополнительные операции с бронированиями, реализованные через JDBC.
+ */
+public interface BookingRepositoryCustom {
+
+    /**
+     * Вставляет бронирования пакетами JDBC.
+     * Используется для участников группового бронирования: при генерации ключей IDENTITY
+     * Hibernate не группирует вставки, поэтому строки пишутся напрямую.
+     *
+     * @param bookings новые бронирования (без идентификаторов)
+     */
+    void batchInsert(List<BookingEntity> bookings);
+}
@@ -0,0 +1,49 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.entity.BookingEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC-реализация дополнительных операций репозитория бронирований.
+ * Выполняется в текущей транзакции JPA на том же соединении.
+ */
+@RequiredArgsConstructor
+public class BookingRepositoryImpl implements BookingRepositoryCustom {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO bookings (booking_number, user_id, flight_id, seat_id, passenger_name,
+                                  total_price, status, booking_date, hold_expires_at, group_lead_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<BookingEntity> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, bookings, BATCH_SIZE, (ps, booking) -> {
+            ps.setString(1, booking.getBookingNumber());
+            ps.setLong(2, booking.getUser().getId());
+            ps.setLong(3, booking.getFlight().getId());
+            ps.setLong(4, booking.getSeat().getId());
+            ps.setString(5, booking.getPassengerName());
+            ps.setBigDecimal(6, booking.getTotalPrice());
+            ps.setString(7, booking.getStatus().name());
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, booking.getHoldExpiresAt() != null
+                    ? Timestamp.valueOf(booking.getHoldExpiresAt()) : null);
+            ps.setObject(10, booking.getGroupLead() != null ? booking.getGroupLead().getId() : null);
+        });
+    }
+}
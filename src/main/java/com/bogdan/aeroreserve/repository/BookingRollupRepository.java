@@ -0,0 +1,208 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.dto.RollupDTO;
+import com.bogdan.aeroreserve.dto.RollupDeltaDTO;
+import com.bogdan.aeroreserve.enums.RollupDimension;
+import com.bogdan.aeroreserve.enums.RollupPeriod;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC-репозиторий агрегированных показателей продаж по направлениям, авиакомпаниям и периодам.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingRollupRepository {
+
+    // Приращения рейсов пачки раскладываются по строкам дня, недели и месяца их вылета;
+    // рейсы с одинаковым направлением и авиакомпанией суммируются до вставки,
+    // так как ON CONFLICT не может изменить одну строку дважды
+    private static final String APPLY_DELTAS_SQL = """
+            INSERT INTO booking_rollups (period_type, period_start, route_id, airline_id,
+                                         bookings, passengers, revenue, refunds, refunded_amount, last_updated)
+            SELECT p.period_type,
+                   date_trunc(p.period_type, f.departure_time)::date,
+                   COALESCE(f.route_id, 0),
+                   COALESCE(f.airline_id, 0),
+                   SUM(d.bookings), SUM(d.passengers), SUM(d.revenue), SUM(d.refunds), SUM(d.refunded_amount),
+                   ?::timestamp
+            FROM unnest(?::bigint[], ?::int[], ?::int[], ?::numeric[], ?::int[], ?::numeric[])
+                     AS d(flight_id, bookings, passengers, revenue, refunds, refunded_amount)
+            JOIN flights f ON f.id = d.flight_id
+            CROSS JOIN (VALUES ('DAY'), ('WEEK'), ('MONTH')) AS p(period_type)
+            GROUP BY 1, 2, 3, 4
+            ON CONFLICT (period_type, period_start, route_id, airline_id) DO UPDATE
+            SET bookings = booking_rollups.bookings + EXCLUDED.bookings,
+                passengers = booking_rollups.passengers + EXCLUDED.passengers,
+                revenue = booking_rollups.revenue + EXCLUDED.revenue,
+                refunds = booking_rollups.refunds + EXCLUDED.refunds,
+                refunded_amount = booking_rollups.refunded_amount + EXCLUDED.refunded_amount,
+                last_updated = EXCLUDED.last_updated
+            """;
+
+    // Время начала последнего пересчета вместе с текущим временем базы данных;
+    // блокировка на чтение не дает пересчету начаться до фиксации пачки приращений
+    private static final String LOCK_REBUILD_STARTED_SQL = """
+            SELECT rebuild_started_at, clock_timestamp()::timestamp AS database_time
+            FROM booking_rollup_state
+            WHERE id = 1
+            FOR SHARE
+            """;
+
+    // Показатели читаются из агрегатов, вместимость - по рейсам тех же периодов
+    // (рейсов на порядки меньше, чем бронирований, и вылет индексирован вместе с разрезом).
+    // Параметры шаблона: колонка разреза, соединения для названия, выражение названия
+    private static final String ROLLUPS_SQL = """
+            WITH sales AS (
+                SELECT r.period_start, r.%1$s AS dimension_id,
+                       SUM(r.bookings) AS bookings, SUM(r.passengers) AS passengers,
+                       SUM(r.revenue) AS revenue, SUM(r.refunds) AS refunds,
+                       SUM(r.refunded_amount) AS refunded_amount
+                FROM booking_rollups r
+                WHERE r.period_type = ? AND r.period_start >= ? AND r.period_start < ?
+                GROUP BY r.period_start, r.%1$s
+            ),
+            capacity AS (
+                SELECT date_trunc(?, f.departure_time)::date AS period_start,
+                       COALESCE(f.%1$s, 0) AS dimension_id,
+                       SUM(a.total_seats) AS seats
+                FROM flights f
+                JOIN aircrafts a ON a.id = f.aircraft_id
+                WHERE f.departure_time >= ? AND f.departure_time < ?
+                GROUP BY 1, 2
+            )
+            SELECT s.period_start, s.dimension_id, %3$s AS label,
+                   s.bookings, s.passengers, s.revenue, s.refunds, s.refunded_amount,
+                   COALESCE(c.seats, 0) AS seats_offered
+            FROM sales s
+            LEFT JOIN capacity c ON c.period_start = s.period_start AND c.dimension_id = s.dimension_id
+            %2$s
+            ORDER BY s.period_start, s.revenue DESC
+            """;
+
+    private static final String ROUTE_ROLLUPS_SQL = ROLLUPS_SQL.formatted("route_id", """
+            LEFT JOIN routes rt ON rt.id = s.dimension_id
+            LEFT JOIN cities dc ON dc.id = rt.departure_city_id
+            LEFT JOIN cities ac ON ac.id = rt.arrival_city_id
+            """, "dc.name || ' → ' || ac.name");
+
+    private static final String AIRLINE_ROLLUPS_SQL = ROLLUPS_SQL.formatted("airline_id", """
+            LEFT JOIN airlines al ON al.id = s.dimension_id
+            """, "al.name");
+
+    private static final String UNKNOWN_LABEL = "Не указано";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавляет приращения показателей рейсов к агрегатам дня, недели и месяца их вылета
+     * одним запросом. Строки агрегатов создаются, если их еще нет.
+     *
+     * @param deltas приращения по идентификатору рейса
+     * @param updatedAt время обновления
+     */
+    public void applyDeltas(Map<Long, RollupDeltaDTO> deltas, LocalDateTime updatedAt) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int size = deltas.size();
+        Long[] flightIds = new Long[size];
+        Integer[] bookings = new Integer[size];
+        Integer[] passengers = new Integer[size];
+        BigDecimal[] revenue = new BigDecimal[size];
+        Integer[] refunds = new Integer[size];
+        BigDecimal[] refundedAmount = new BigDecimal[size];
+        int i = 0;
+        for (Map.Entry<Long, RollupDeltaDTO> entry : deltas.entrySet()) {
+            RollupDeltaDTO delta = entry.getValue();
+            flightIds[i] = entry.getKey();
+            bookings[i] = delta.getBookings();
+            passengers[i] = delta.getPassengers();
+            revenue[i] = delta.getRevenue();
+            refunds[i] = delta.getRefunds();
+            refundedAmount[i] = delta.getRefundedAmount();
+            i++;
+        }
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(APPLY_DELTAS_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(updatedAt));
+            ps.setArray(2, connection.createArrayOf("bigint", flightIds));
+            ps.setArray(3, connection.createArrayOf("integer", bookings));
+            ps.setArray(4, connection.createArrayOf("integer", passengers));
+            ps.setArray(5, connection.createArrayOf("numeric", revenue));
+            ps.setArray(6, connection.createArrayOf("integer", refunds));
+            ps.setArray(7, connection.createArrayOf("numeric", refundedAmount));
+            return ps;
+        });
+    }
+
+    /**
+     * Возвращает время начала последнего пересчета по часам приложения и блокирует его
+     * до конца транзакции: пересчет, начатый после чтения, ждет ее фиксации.
+     * Расхождение часов приложения и базы данных исключается с точностью до времени запроса.
+     *
+     * @return время начала последнего пересчета по часам приложения
+     */
+    public LocalDateTime lockRebuildStartedAt() {
+        LocalDateTime requestedAt = LocalDateTime.now();
+        return jdbcTemplate.queryForObject(LOCK_REBUILD_STARTED_SQL, (rs, rowNum) -> {
+            LocalDateTime startedAt = rs.getObject("rebuild_started_at", LocalDateTime.class);
+            LocalDateTime databaseTime = rs.getObject("database_time", LocalDateTime.class);
+            return startedAt.plus(Duration.between(databaseTime, requestedAt));
+        });
+    }
+
+    /**
+     * Пересчитывает все агрегаты по бронированиям функцией rebuild_booking_rollups (V23)
+     * одним запросом: читатели до фиксации видят прежние значения
+     *
+     * @param updatedAt время обновления
+     * @return количество строк агрегатов
+     */
+    public int rebuild(LocalDateTime updatedAt) {
+        Long rows = jdbcTemplate.queryForObject("SELECT rebuild_booking_rollups(?)", Long.class,
+                Timestamp.valueOf(updatedAt));
+        return rows != null ? rows.intValue() : 0;
+    }
+
+    /**
+     * Возвращает показатели продаж за периоды в заданном разрезе
+     *
+     * @param period период агрегирования
+     * @param dimension разрез: направления или авиакомпании
+     * @param from начало первого периода
+     * @param to начало периода, следующего за последним (не включается)
+     * @return показатели по периодам, внутри периода - по убыванию выручки
+     */
+    public List<RollupDTO> findRollups(RollupPeriod period, RollupDimension dimension, LocalDate from, LocalDate to) {
+        String sql = dimension == RollupDimension.AIRLINE ? AIRLINE_ROLLUPS_SQL : ROUTE_ROLLUPS_SQL;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+                    String label = rs.getString("label");
+                    return new RollupDTO(
+                            rs.getDate("period_start").toLocalDate(),
+                            rs.getLong("dimension_id"),
+                            label != null ? label : UNKNOWN_LABEL,
+                            rs.getLong("bookings"),
+                            rs.getLong("passengers"),
+                            rs.getBigDecimal("revenue"),
+                            rs.getLong("refunds"),
+                            rs.getBigDecimal("refunded_amount"),
+                            rs.getLong("seats_offered"));
+                },
+                period.name(), Date.valueOf(from), Date.valueOf(to),
+                period.name(), Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+    }
+}
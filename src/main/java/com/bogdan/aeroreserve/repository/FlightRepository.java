@@ -1,16 +1,20 @@
 package com.bogdan.aeroreserve.repository;
 
+import com.bogdan.aeroreserve.dto.FlightDetailsDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
 import com.bogdan.aeroreserve.entity.FlightEntity;
 import com.bogdan.aeroreserve.entity.RouteEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,28 +49,134 @@ public interface FlightRepository extends JpaRepository<FlightEntity, Long> {
             String departureCity, String arrivalCity, LocalDateTime start, LocalDateTime end);
 
     /**
-     * Находит рейсы по критериям поиска с пагинацией.
-     * Загружает связанные сущности для оптимизации производительности.
+     * Находит первую страницу сводок рейсов в порядке (время вылета, id).
      *
-     * @param from город вылета (может быть null)
-     * @param to город прилета (может быть null)
-     * @param date дата вылета
-     * @param pageable параметры пагинации
-     * @return страница с рейсами, соответствующими критериям поиска
-     */
-    @EntityGraph(attributePaths = {"route", "route.departureCity", "route.arrivalCity", "aircraft", "airline", "seats"})
-    @Query("""
-    SELECT f FROM FlightEntity f 
-    WHERE (:from IS NULL OR LOWER(f.route.departureCity.name) LIKE CONCAT('%', LOWER(:from), '%')) 
-    AND (:to IS NULL OR LOWER(f.route.arrivalCity.name) LIKE CONCAT('%', LOWER(:to), '%')) 
-    AND FUNCTION('DATE', f.departureTime) = :date 
-    ORDER BY f.departureTime ASC
-    """)
-    Page<FlightEntity> findBySearchCriteria(
+     * @param limit размер выборки
+     * @return сводки рейсов
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + " ORDER BY f.departureTime ASC, f.id ASC")
+    List<FlightSummaryDTO> findFirstSummaries(Limit limit);
+
+    /**
+     * Находит сводки рейсов, следующих за позицией (время вылета, id).
+     * Условие по времени вылета позволяет читать индекс idx_flights_departure_id
+     * с нужной позиции без пропуска предыдущих строк.
+     *
+     * @param departureTime время вылета граничного рейса
+     * @param id идентификатор граничного рейса
+     * @param limit размер выборки
+     * @return сводки рейсов по возрастанию (время вылета, id)
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + " WHERE " + AFTER_CURSOR + " ORDER BY f.departureTime ASC, f.id ASC")
+    List<FlightSummaryDTO> findSummariesAfter(
+            @Param("departureTime") LocalDateTime departureTime,
+            @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * Находит сводки рейсов, предшествующих позиции (время вылета, id).
+     *
+     * @param departureTime время вылета граничного рейса
+     * @param id идентификатор граничного рейса
+     * @param limit размер выборки
+     * @return сводки рейсов по убыванию (время вылета, id)
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + " WHERE " + BEFORE_CURSOR + " ORDER BY f.departureTime DESC, f.id DESC")
+    List<FlightSummaryDTO> findSummariesBefore(
+            @Param("departureTime") LocalDateTime departureTime,
+            @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * Находит сводки рейсов по критериям поиска, следующих за позицией (время вылета, id).
+     * Дата задается полуинтервалом времени вылета; места и сущности не загружаются.
+     * Для первой страницы передается позиция, предшествующая всем рейсам.
+     *
+     * @param from город вылета или его часть (может быть null)
+     * @param to город прилета или его часть (может быть null)
+     * @param start начало интервала вылета (может быть null)
+     * @param end конец интервала вылета, не включая (может быть null)
+     * @param departureTime время вылета граничного рейса
+     * @param id идентификатор граничного рейса
+     * @param limit размер выборки
+     * @return сводки рейсов по возрастанию (время вылета, id)
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + SEARCH_CRITERIA + " AND " + AFTER_CURSOR
+            + " ORDER BY f.departureTime ASC, f.id ASC")
+    List<FlightSummaryDTO> findSummariesBySearchCriteriaAfter(
             @Param("from") String from,
             @Param("to") String to,
-            @Param("date") LocalDate date,
-            Pageable pageable);
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("departureTime") LocalDateTime departureTime,
+            @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * Находит сводки рейсов по критериям поиска, предшествующих позиции (время вылета, id).
+     *
+     * @param from город вылета или его часть (может быть null)
+     * @param to город прилета или его часть (может быть null)
+     * @param start начало интервала вылета (может быть null)
+     * @param end конец интервала вылета, не включая (может быть null)
+     * @param departureTime время вылета граничного рейса
+     * @param id идентификатор граничного рейса
+     * @param limit размер выборки
+     * @return сводки рейсов по убыванию (время вылета, id)
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + SEARCH_CRITERIA + " AND " + BEFORE_CURSOR
+            + " ORDER BY f.departureTime DESC, f.id DESC")
+    List<FlightSummaryDTO> findSummariesBySearchCriteriaBefore(
+            @Param("from") String from,
+            @Param("to") String to,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("departureTime") LocalDateTime departureTime,
+            @Param("id") Long id,
+            Limit limit);
+
+    /**
+     * Возвращает минимальную цену и доступность рейсов направления по дням одним сгруппированным запросом.
+     * Минимальная цена учитывает только рейсы по расписанию со свободными местами.
+     *
+     * @param from город вылета или его часть в нижнем регистре
+     * @param to город прилета или его часть в нижнем регистре
+     * @param start начало интервала вылета
+     * @param end конец интервала вылета, не включая
+     * @return строки вида [дата, минимальная цена, количество рейсов, свободные места] по возрастанию даты
+     */
+    @Query(value = """
+    SELECT CAST(f.departure_time AS DATE) AS day,
+           MIN(f.price) FILTER (WHERE f.status = 'SCHEDULED' AND f.available_economy_seats
+               + f.available_business_seats + f.available_first_class_seats > 0) AS lowest_price,
+           COUNT(*) AS flights,
+           SUM(f.available_economy_seats + f.available_business_seats + f.available_first_class_seats) AS available_seats
+    FROM flights f
+    JOIN routes r ON r.id = f.route_id
+    JOIN cities dc ON dc.id = r.departure_city_id
+    JOIN cities ac ON ac.id = r.arrival_city_id
+    WHERE LOWER(dc.name) LIKE CONCAT('%', :from, '%')
+      AND LOWER(ac.name) LIKE CONCAT('%', :to, '%')
+      AND f.departure_time >= :start
+      AND f.departure_time < :end
+    GROUP BY CAST(f.departure_time AS DATE)
+    ORDER BY day
+    """, nativeQuery = true)
+    List<Object[]> findDailyFares(
+            @Param("from") String from,
+            @Param("to") String to,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    /**
+     * Возвращает оценку количества рейсов по статистике планировщика без полного подсчета.
+     * Для таблицы, по которой еще не собиралась статистика, возвращает отрицательное значение.
+     *
+     * @return оценочное количество рейсов
+     */
+    @Query(value = "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = 'flights'::regclass",
+            nativeQuery = true)
+    long estimateFlightCount();
 
     /**
      * Находит рейс по идентификатору с загрузкой всех связанных деталей.
@@ -74,10 +184,30 @@ public interface FlightRepository extends JpaRepository<FlightEntity, Long> {
      * @param id идентификатор рейса
      * @return Optional с найденным рейсом или пустой, если не найден
      */
-    @EntityGraph(attributePaths = {"route", "route.departureCity", "route.arrivalCity", "aircraft", "airline", "seats"})
+    @EntityGraph(attributePaths = {"route", "route.departureCity", "route.arrivalCity", "aircraft", "airline"})
     @Query("SELECT f FROM FlightEntity f WHERE f.id = :id")
     Optional<FlightEntity> findByIdWithAllDetails(@Param("id") Long id);
 
+    /**
+     * Формирует неизменяемый снимок рейса для страниц рейса одним запросом с соединением справочников.
+     *
+     * @param id идентификатор рейса
+     * @return Optional со снимком рейса или пустой, если рейс не найден
+     */
+    @Query(FLIGHT_DETAILS_SELECT + " WHERE f.id = :id")
+    Optional<FlightDetailsDTO> findDetailsById(@Param("id") Long id);
+
+    /**
+     * Формирует снимки рейсов, вылетающих в интервале, для предварительного заполнения кэша
+     *
+     * @param start начало интервала вылета включительно
+     * @param end конец интервала вылета (не включительно)
+     * @return снимки рейсов
+     */
+    @Query(FLIGHT_DETAILS_SELECT + " WHERE f.departureTime >= :start AND f.departureTime < :end")
+    List<FlightDetailsDTO> findDetailsDepartingBetween(@Param("start") LocalDateTime start,
+                                                       @Param("end") LocalDateTime end);
+
     /**
      * Находит рейсы по городу вылета.
      *
@@ -112,4 +242,180 @@ public interface FlightRepository extends JpaRepository<FlightEntity, Long> {
     @Query("SELECT f FROM FlightEntity f LEFT JOIN FETCH f.seats WHERE f.id = :id")
     @EntityGraph(value = "Flight.withAllDetails")
     Optional<FlightEntity> findByIdWithSeats(@Param("id") Long id);
-}
\ No newline at end of file
+
+    /**
+     * Возвращает общее количество свободных мест по счетчикам рейсов без обращения к таблице seats.
+     *
+     * @param ids идентификаторы рейсов
+     * @return строки вида [flight_id, available_seats]
+     */
+    @Query("SELECT f.id, f.availableEconomySeats + f.availableBusinessSeats + f.availableFirstClassSeats " +
+            "FROM FlightEntity f WHERE f.id IN :ids")
+    List<Object[]> findAvailableSeatCounters(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Возвращает счетчики свободных мест рейсов по классам обслуживания.
+     *
+     * @param ids идентификаторы рейсов
+     * @return строки вида [flight_id, economy, business, first]
+     */
+    @Query("SELECT f.id, f.availableEconomySeats, f.availableBusinessSeats, f.availableFirstClassSeats " +
+            "FROM FlightEntity f WHERE f.id IN :ids")
+    List<Object[]> findAvailableSeatCountersByClass(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Находит рейсы, вылетающие не раньше указанного времени, счетчики свободных мест которых
+     * расходятся с таблицей seats. Запрос не блокирует строки: найденные рейсы исправляются
+     * по одному методом repairAvailableSeatCounters.
+     *
+     * @param from время, начиная с которого проверяются рейсы
+     * @return идентификаторы рейсов с расходящимися счетчиками по возрастанию
+     */
+    @Query(value = """
+    SELECT f.id
+    FROM flights f
+    JOIN (
+        SELECT st.flight_id,
+               COUNT(*) FILTER (WHERE st.available AND COALESCE(st.seat_class, 'ECONOMY') = 'ECONOMY') AS economy,
+               COUNT(*) FILTER (WHERE st.available AND st.seat_class = 'BUSINESS') AS business,
+               COUNT(*) FILTER (WHERE st.available AND st.seat_class = 'FIRST') AS first_class
+        FROM seats st
+        JOIN flights fl ON fl.id = st.flight_id
+        WHERE fl.departure_time >= :from
+        GROUP BY st.flight_id
+    ) s ON s.flight_id = f.id
+    WHERE (f.available_economy_seats, f.available_business_seats, f.available_first_class_seats)
+          IS DISTINCT FROM (s.economy, s.business, s.first_class)
+    ORDER BY f.id
+    """, nativeQuery = true)
+    List<Long> findFlightsWithMismatchedSeatCounters(@Param("from") LocalDateTime from);
+
+    /**
+     * Блокирует строку рейса до конца транзакции.
+     * Выполняется перед repairAvailableSeatCounters в той же транзакции.
+     *
+     * @param id идентификатор рейса
+     * @return идентификатор заблокированного рейса
+     */
+    @Query(value = "SELECT id FROM flights WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    /**
+     * Пересчитывает счетчики свободных мест рейса по таблице seats, если они расходятся.
+     * Строка рейса должна быть заблокирована lockById предыдущим запросом той же транзакции:
+     * иначе агрегат по снимку начала запроса перезапишет счетчик, только что уменьшенный
+     * параллельным бронированием.
+     *
+     * @param id идентификатор рейса
+     * @return 1 если счетчики исправлены, иначе 0
+     */
+    @Modifying
+    @Query(value = """
+    UPDATE flights f
+    SET available_economy_seats = s.economy,
+        available_business_seats = s.business,
+        available_first_class_seats = s.first_class
+    FROM (
+        SELECT COUNT(*) FILTER (WHERE st.available AND COALESCE(st.seat_class, 'ECONOMY') = 'ECONOMY') AS economy,
+               COUNT(*) FILTER (WHERE st.available AND st.seat_class = 'BUSINESS') AS business,
+               COUNT(*) FILTER (WHERE st.available AND st.seat_class = 'FIRST') AS first_class
+        FROM seats st
+        WHERE st.flight_id = :id
+    ) s
+    WHERE f.id = :id
+      AND (f.available_economy_seats, f.available_business_seats, f.available_first_class_seats)
+          IS DISTINCT FROM (s.economy, s.business, s.first_class)
+    """, nativeQuery = true)
+    int repairAvailableSeatCounters(@Param("id") Long id);
+
+    /**
+     * Формирует сводки рейсов, вылетающих не раньше указанного времени, одним запросом
+     * с соединением справочников. Места не загружаются: количество свободных мест берется
+     * из счетчиков рейса.
+     *
+     * @param from начало интервала вылета
+     * @return сводки предстоящих рейсов
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + " WHERE f.departureTime >= :from")
+    List<FlightSummaryDTO> findSummariesDepartingFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Возвращает общее количество свободных мест по счетчикам рейсов, вылетающих не раньше указанного времени.
+     *
+     * @param from начало интервала вылета
+     * @return строки вида [flight_id, available_seats]
+     */
+    @Query("SELECT f.id, f.availableEconomySeats + f.availableBusinessSeats + f.availableFirstClassSeats " +
+            "FROM FlightEntity f WHERE f.departureTime >= :from")
+    List<Object[]> findAvailableSeatCountersDepartingFrom(@Param("from") LocalDateTime from);
+
+    /**
+     * Формирует сводку одного рейса.
+     *
+     * @param id идентификатор рейса
+     * @return Optional со сводкой рейса или пустой, если рейс не найден
+     */
+    @Query(FLIGHT_SUMMARY_SELECT + " WHERE f.id = :id")
+    Optional<FlightSummaryDTO> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Условие позиции: рейсы строго после (время вылета, id)
+     */
+    String AFTER_CURSOR = """
+    f.departureTime >= :departureTime
+    AND (f.departureTime > :departureTime OR f.id > :id)
+    """;
+
+    /**
+     * Условие позиции: рейсы строго перед (время вылета, id)
+     */
+    String BEFORE_CURSOR = """
+    f.departureTime <= :departureTime
+    AND (f.departureTime < :departureTime OR f.id < :id)
+    """;
+
+    /**
+     * Критерии поиска рейсов по городам и интервалу вылета
+     */
+    String SEARCH_CRITERIA = """
+    WHERE (:from IS NULL OR LOWER(dc.name) LIKE CONCAT('%', :from, '%'))
+    AND (:to IS NULL OR LOWER(ac.name) LIKE CONCAT('%', :to, '%'))
+    AND (:start IS NULL OR f.departureTime >= :start)
+    AND (:end IS NULL OR f.departureTime < :end)
+    """;
+
+    /**
+     * Общая часть запросов сводок рейсов
+     */
+    String FLIGHT_SUMMARY_SELECT = """
+    SELECT new com.bogdan.aeroreserve.dto.FlightSummaryDTO(
+        f.id, f.flightNumber,
+        COALESCE(dc.name, 'Unknown'), COALESCE(ac.name, 'Unknown'),
+        f.departureTime, f.arrivalTime, f.price,
+        al.name, a.model, COALESCE(a.totalSeats, 0), f.status,
+        f.availableEconomySeats + f.availableBusinessSeats + f.availableFirstClassSeats)
+    FROM FlightEntity f
+    LEFT JOIN f.route r
+    LEFT JOIN r.departureCity dc
+    LEFT JOIN r.arrivalCity ac
+    LEFT JOIN f.aircraft a
+    LEFT JOIN f.airline al
+    """;
+
+    /**
+     * Общая часть запросов снимков рейса
+     */
+    String FLIGHT_DETAILS_SELECT = """
+    SELECT new com.bogdan.aeroreserve.dto.FlightDetailsDTO(
+        f.id, f.flightNumber,
+        COALESCE(dc.name, 'Unknown'), COALESCE(ac.name, 'Unknown'),
+        f.departureTime, f.arrivalTime, f.price, f.status,
+        al.name, a.manufacturer, a.model, COALESCE(a.totalSeats, 0))
+    FROM FlightEntity f
+    LEFT JOIN f.route r
+    LEFT JOIN r.departureCity dc
+    LEFT JOIN r.arrivalCity ac
+    LEFT JOIN f.aircraft a
+    LEFT JOIN f.airline al
+    """;
+}
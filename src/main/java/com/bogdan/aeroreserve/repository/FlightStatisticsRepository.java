@@ -11,7 +11,8 @@ import java.util.Optional;
  * Предоставляет методы для выполнения операций со статистическими данными о рейсах.
  */
 @Repository
-public interface FlightStatisticsRepository extends JpaRepository<FlightStatisticsEntity, Long> {
+public interface FlightStatisticsRepository extends JpaRepository<FlightStatisticsEntity, Long>,
+        FlightStatisticsRepositoryCustom {
 
     /**
      * Находит статистику по идентификатору рейса.
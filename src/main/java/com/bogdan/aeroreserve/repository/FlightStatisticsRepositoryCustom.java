@@ -0,0 +1,31 @@
+package com.bogdan.aeroreserve.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дополнительные операции со статистикой рейсов, реализованные через JDBC.
+ */
+public interface FlightStatisticsRepositoryCustom {
+
+    /**
+     * Добавляет приращения счетчиков статистики рейсов одним запросом и пересчитывает
+     * заполненность измененных рейсов. Строка статистики создается, если ее еще нет.
+     *
+     * @param deltas приращения по идентификатору рейса: [бронирования, пассажиры]
+     * @param updatedAt время обновления
+     */
+    void applyDeltas(Map<Long, int[]> deltas, LocalDateTime updatedAt);
+
+    /**
+     * Пересчитывает статистику следующей пачки рейсов по бронированиям одним запросом
+     * (агрегат по пачке и INSERT ... ON CONFLICT). Рейсы перебираются по возрастанию id.
+     *
+     * @param afterFlightId идентификатор последнего рейса предыдущей пачки (0 для первой)
+     * @param limit размер пачки
+     * @param updatedAt время обновления
+     * @return идентификаторы рейсов пачки; пустой список, если рейсы закончились
+     */
+    List<Long> recalculateChunk(long afterFlightId, int limit, LocalDateTime updatedAt);
+}
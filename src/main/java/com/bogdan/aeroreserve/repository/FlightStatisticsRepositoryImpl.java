@@ -0,0 +1,101 @@
+package com.bogdan.aeroreserve.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC-реализация дополнительных операций репозитория статистики рейсов.
+ * Выполняется в текущей транзакции JPA на том же соединении.
+ */
+@RequiredArgsConstructor
+public class FlightStatisticsRepositoryImpl implements FlightStatisticsRepositoryCustom {
+
+    // Приращения всей пачки передаются массивами и применяются одним запросом;
+    // заполненность считается по итоговому количеству пассажиров рейса
+    private static final String APPLY_DELTAS_SQL = """
+            INSERT INTO flight_statistics (flight_id, total_bookings, total_passengers, load_factor, last_updated)
+            SELECT d.flight_id, d.bookings, d.passengers,
+                   COALESCE(d.passengers * 100.0 / NULLIF(a.total_seats, 0), 0), ?
+            FROM unnest(?::bigint[], ?::int[], ?::int[]) AS d(flight_id, bookings, passengers)
+            JOIN flights f ON f.id = d.flight_id
+            LEFT JOIN aircrafts a ON a.id = f.aircraft_id
+            ON CONFLICT (flight_id) DO UPDATE
+            SET total_bookings = flight_statistics.total_bookings + EXCLUDED.total_bookings,
+                total_passengers = flight_statistics.total_passengers + EXCLUDED.total_passengers,
+                load_factor = COALESCE((flight_statistics.total_passengers + EXCLUDED.total_passengers) * 100.0
+                        / NULLIF((SELECT a.total_seats FROM flights f JOIN aircrafts a ON a.id = f.aircraft_id
+                                  WHERE f.id = EXCLUDED.flight_id), 0), 0),
+                last_updated = EXCLUDED.last_updated
+            """;
+
+    // Полный пересчет пачки рейсов: счетчики заменяются значениями по бронированиям
+    private static final String RECALCULATE_CHUNK_SQL = """
+            WITH chunk AS (
+                SELECT f.id, f.aircraft_id FROM flights f
+                WHERE f.id > ?
+                ORDER BY f.id
+                LIMIT ?
+            ),
+            upserted AS (
+                INSERT INTO flight_statistics (flight_id, total_bookings, total_passengers, load_factor, last_updated)
+                SELECT c.id,
+                       COUNT(b.id),
+                       COUNT(b.id) FILTER (WHERE b.status = 'CONFIRMED'),
+                       COALESCE(COUNT(b.id) FILTER (WHERE b.status = 'CONFIRMED') * 100.0
+                                / NULLIF(a.total_seats, 0), 0),
+                       ?
+                FROM chunk c
+                LEFT JOIN aircrafts a ON a.id = c.aircraft_id
+                LEFT JOIN bookings b ON b.flight_id = c.id
+                GROUP BY c.id, a.total_seats
+                ON CONFLICT (flight_id) DO UPDATE
+                SET total_bookings = EXCLUDED.total_bookings,
+                    total_passengers = EXCLUDED.total_passengers,
+                    load_factor = EXCLUDED.load_factor,
+                    last_updated = EXCLUDED.last_updated
+                RETURNING flight_id
+            )
+            SELECT flight_id FROM upserted ORDER BY flight_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void applyDeltas(Map<Long, int[]> deltas, LocalDateTime updatedAt) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Long[] flightIds = new Long[deltas.size()];
+        Integer[] bookings = new Integer[deltas.size()];
+        Integer[] passengers = new Integer[deltas.size()];
+        int i = 0;
+        for (Map.Entry<Long, int[]> entry : deltas.entrySet()) {
+            flightIds[i] = entry.getKey();
+            bookings[i] = entry.getValue()[0];
+            passengers[i] = entry.getValue()[1];
+            i++;
+        }
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(APPLY_DELTAS_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(updatedAt));
+            ps.setArray(2, connection.createArrayOf("bigint", flightIds));
+            ps.setArray(3, connection.createArrayOf("integer", bookings));
+            ps.setArray(4, connection.createArrayOf("integer", passengers));
+            return ps;
+        });
+    }
+
+    @Override
+    public List<Long> recalculateChunk(long afterFlightId, int limit, LocalDateTime updatedAt) {
+        return jdbcTemplate.queryForList(RECALCULATE_CHUNK_SQL, Long.class,
+                afterFlightId, limit, Timestamp.valueOf(updatedAt));
+    }
+}
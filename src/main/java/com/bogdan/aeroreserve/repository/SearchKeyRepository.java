@@ -0,0 +1,70 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.dto.SearchKeyDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC-репозиторий статистики поисков по направлениям.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SearchKeyRepository {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO search_key_stats (departure_city, arrival_city, searches, last_searched_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (departure_city, arrival_city) DO UPDATE
+            SET searches = search_key_stats.searches + EXCLUDED.searches,
+                last_searched_at = EXCLUDED.last_searched_at
+            """;
+
+    private static final String TOP_SQL = """
+            SELECT departure_city, arrival_city, searches
+            FROM search_key_stats
+            WHERE last_searched_at >= ?
+            ORDER BY searches DESC
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавляет количество поисков по направлениям одним пакетом
+     *
+     * @param searches направления с количеством новых поисков
+     * @param searchedAt время последнего поиска
+     */
+    public void addSearches(List<SearchKeyDTO> searches, LocalDateTime searchedAt) {
+        if (searches.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(searchedAt);
+        jdbcTemplate.batchUpdate(UPSERT_SQL, searches, BATCH_SIZE, (ps, key) -> {
+            ps.setString(1, key.getDepartureCity());
+            ps.setString(2, key.getArrivalCity());
+            ps.setLong(3, key.getSearches());
+            ps.setTimestamp(4, timestamp);
+        });
+    }
+
+    /**
+     * Возвращает самые частые направления поиска
+     *
+     * @param since учитываются направления, которые искали не раньше этого времени
+     * @param limit количество направлений
+     * @return направления по убыванию количества поисков
+     */
+    public List<SearchKeyDTO> findTop(LocalDateTime since, int limit) {
+        return jdbcTemplate.query(TOP_SQL, (rs, rowNum) -> new SearchKeyDTO(
+                rs.getString("departure_city"), rs.getString("arrival_city"), rs.getLong("searches")),
+                Timestamp.valueOf(since), limit);
+    }
+}
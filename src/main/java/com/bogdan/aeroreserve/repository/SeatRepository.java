@@ -1,9 +1,13 @@
 package com.bogdan.aeroreserve.repository;
 
+import com.bogdan.aeroreserve.dto.SeatDTO;
 import com.bogdan.aeroreserve.entity.FlightEntity;
 import com.bogdan.aeroreserve.entity.SeatEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,7 +16,7 @@ import java.util.Optional;
  * Предоставляет методы для выполнения операций с данными о местах.
  */
 @Repository
-public interface SeatRepository extends JpaRepository<SeatEntity, Long> {
+public interface SeatRepository extends JpaRepository<SeatEntity, Long>, SeatRepositoryCustom {
 
     /**
      * Находит все доступные места для указанного рейса.
@@ -55,4 +59,154 @@ public interface SeatRepository extends JpaRepository<SeatEntity, Long> {
      * @return количество доступных мест
      */
     Integer countByFlightIdAndAvailableTrue(Long flightId);
-}
\ No newline at end of file
+
+    /**
+     * Начало CTE counters, изменяющего счетчики свободных мест рейсов на места из CTE changed.
+     * Между началом и FLIGHT_COUNTERS_TAIL подставляется знак изменения (столбец sign),
+     * поэтому увеличение и уменьшение счетчиков собираются из одного текста запроса.
+     */
+    String FLIGHT_COUNTERS_HEAD = """
+    counters AS (
+        UPDATE flights f SET
+            available_economy_seats = f.available_economy_seats + d.sign * d.economy,
+            available_business_seats = f.available_business_seats + d.sign * d.business,
+            available_first_class_seats = f.available_first_class_seats + d.sign * d.first_class
+        FROM (
+            SELECT flight_id,""";
+
+    /**
+     * Окончание CTE counters после знака изменения
+     */
+    String FLIGHT_COUNTERS_TAIL = """
+
+                   COUNT(*) FILTER (WHERE COALESCE(seat_class, 'ECONOMY') = 'ECONOMY') AS economy,
+                   COUNT(*) FILTER (WHERE seat_class = 'BUSINESS') AS business,
+                   COUNT(*) FILTER (WHERE seat_class = 'FIRST') AS first_class
+            FROM changed
+            GROUP BY flight_id
+        ) d
+        WHERE f.id = d.flight_id
+    )
+    """;
+
+    /**
+     * Уменьшает счетчики свободных мест рейсов на места из CTE changed.
+     * Подставляется в запросы, меняющие доступность мест, чтобы счетчики
+     * обновлялись тем же запросом.
+     */
+    String DECREMENT_FLIGHT_COUNTERS = FLIGHT_COUNTERS_HEAD + " -1 AS sign," + FLIGHT_COUNTERS_TAIL;
+
+    /**
+     * Увеличивает счетчики свободных мест рейсов на места из CTE changed.
+     */
+    String INCREMENT_FLIGHT_COUNTERS = FLIGHT_COUNTERS_HEAD + " 1 AS sign," + FLIGHT_COUNTERS_TAIL;
+
+    /**
+     * Атомарно занимает место на рейсе одним условным UPDATE.
+     * Место помечается занятым только если оно сейчас свободно, поэтому из
+     * нескольких конкурентных запросов успешным окажется ровно один.
+     * Счетчик свободных мест рейса уменьшается тем же запросом.
+     *
+     * @param flightId идентификатор рейса
+     * @param seatNumber номер места
+     * @return идентификатор занятого места или пустой Optional, если место занято или не существует
+     */
+    @Query(value = """
+    WITH changed AS (
+        UPDATE seats SET available = false
+        WHERE flight_id = :flightId AND seat_number = :seatNumber AND available = true
+        RETURNING id, flight_id, seat_class
+    ),
+    """ + DECREMENT_FLIGHT_COUNTERS + """
+    SELECT id FROM changed
+    """, nativeQuery = true)
+    Optional<Long> claimSeat(@Param("flightId") Long flightId, @Param("seatNumber") String seatNumber);
+
+    /**
+     * Атомарно занимает несколько мест на рейсе одним условным UPDATE.
+     * Возвращаются только места, которые были свободны и заняты этим запросом.
+     * Счетчики свободных мест рейса уменьшаются тем же запросом.
+     *
+     * @param flightId идентификатор рейса
+     * @param seatNumbers номера мест
+     * @return строки вида [seat_id, seat_number] для занятых мест
+     */
+    @Query(value = """
+    WITH changed AS (
+        UPDATE seats SET available = false
+        WHERE flight_id = :flightId AND seat_number IN (:seatNumbers) AND available = true
+        RETURNING id, flight_id, seat_class, seat_number
+    ),
+    """ + DECREMENT_FLIGHT_COUNTERS + """
+    SELECT id, seat_number FROM changed
+    """, nativeQuery = true)
+    List<Object[]> claimSeats(@Param("flightId") Long flightId,
+                              @Param("seatNumbers") Collection<String> seatNumbers);
+
+    /**
+     * Освобождает место, если оно было занято, и увеличивает счетчик свободных мест рейса.
+     *
+     * @param seatId идентификатор места
+     * @return количество измененных строк (0, если место уже было свободно)
+     */
+    @Query(value = """
+    WITH changed AS (
+        UPDATE seats SET available = true
+        WHERE id = :seatId AND available = false
+        RETURNING id, flight_id, seat_class
+    ),
+    """ + INCREMENT_FLIGHT_COUNTERS + """
+    SELECT CAST(COUNT(*) AS INTEGER) FROM changed
+    """, nativeQuery = true)
+    int releaseSeat(@Param("seatId") Long seatId);
+
+    /**
+     * Загружает состояние мест для набора рейсов без создания сущностей.
+     * Места каждого рейса упорядочены по идентификатору, то есть в порядке рядов.
+     *
+     * @param flightIds идентификаторы рейсов
+     * @return список состояний мест
+     */
+    @Query("""
+    SELECT new com.bogdan.aeroreserve.dto.SeatDTO(s.id, s.flight.id, s.seatNumber, s.seatClass, s.available)
+    FROM SeatEntity s
+    WHERE s.flight.id IN :flightIds
+    ORDER BY s.flight.id, s.id
+    """)
+    List<SeatDTO> findSeatStatesByFlightIds(@Param("flightIds") Collection<Long> flightIds);
+
+    /**
+     * Освобождает набор мест одним запросом вместе со счетчиками свободных мест рейсов.
+     *
+     * @param seatIds идентификаторы мест
+     * @return идентификаторы мест, которые были заняты и освобождены этим запросом
+     */
+    @Query(value = """
+    WITH changed AS (
+        UPDATE seats SET available = true
+        WHERE id IN (:seatIds) AND available = false
+        RETURNING id, flight_id, seat_class
+    ),
+    """ + INCREMENT_FLIGHT_COUNTERS + """
+    SELECT id FROM changed
+    """, nativeQuery = true)
+    List<Long> releaseSeats(@Param("seatIds") Collection<Long> seatIds);
+
+    /**
+     * Повторно занимает место по идентификатору, если оно свободно,
+     * и уменьшает счетчик свободных мест рейса.
+     *
+     * @param seatId идентификатор места
+     * @return 1 если место занято этим запросом, 0 если оно уже занято
+     */
+    @Query(value = """
+    WITH changed AS (
+        UPDATE seats SET available = false
+        WHERE id = :seatId AND available = true
+        RETURNING id, flight_id, seat_class
+    ),
+    """ + DECREMENT_FLIGHT_COUNTERS + """
+    SELECT CAST(COUNT(*) AS INTEGER) FROM changed
+    """, nativeQuery = true)
+    int reclaimSeat(@Param("seatId") Long seatId);
+}
@@ -0,0 +1,23 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.dto.SeatDTO;
+
+import java.util.List;
+
+/**
+ * Дополнительные операции с местами, реализованные через JDBC.
+ */
+public interface SeatRepositoryCustom {
+
+    /**
+     * Создает места рейса одним запросом INSERT ... SELECT FROM unnest(...).
+     * Вся карта мест передается массивами за один обмен с базой данных,
+     * без создания сущностей и отдельных INSERT на каждое место.
+     * Счетчики свободных мест рейса увеличиваются тем же запросом.
+     *
+     * @param flightId идентификатор рейса
+     * @param seats места (номер и класс обслуживания)
+     * @return количество созданных мест
+     */
+    int insertSeats(Long flightId, List<SeatDTO> seats);
+}
@@ -0,0 +1,53 @@
+package com.bogdan.aeroreserve.repository;
+
+import com.bogdan.aeroreserve.dto.SeatDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * JDBC-реализация дополнительных операций репозитория мест.
+ * Выполняется в текущей транзакции JPA на том же соединении.
+ */
+@RequiredArgsConstructor
+public class SeatRepositoryImpl implements SeatRepositoryCustom {
+
+    // Вставка мест и обновление счетчиков свободных мест рейса одним запросом
+    private static final String INSERT_SQL = """
+            WITH changed AS (
+                INSERT INTO seats (flight_id, seat_number, seat_class, available)
+                SELECT ?, s.seat_number, s.seat_class, true
+                FROM unnest(?::text[], ?::text[]) AS s(seat_number, seat_class)
+                RETURNING id, flight_id, seat_class
+            ),
+            """ + SeatRepository.INCREMENT_FLIGHT_COUNTERS + """
+            SELECT COUNT(*) FROM changed
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertSeats(Long flightId, List<SeatDTO> seats) {
+        if (seats.isEmpty()) {
+            return 0;
+        }
+
+        String[] seatNumbers = new String[seats.size()];
+        String[] seatClasses = new String[seats.size()];
+        for (int i = 0; i < seats.size(); i++) {
+            seatNumbers[i] = seats.get(i).getSeatNumber();
+            seatClasses[i] = seats.get(i).getSeatClass().name();
+        }
+
+        Integer inserted = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setLong(1, flightId);
+            ps.setArray(2, connection.createArrayOf("text", seatNumbers));
+            ps.setArray(3, connection.createArrayOf("text", seatClasses));
+            return ps;
+        }, rs -> rs.next() ? rs.getInt(1) : 0);
+        return inserted != null ? inserted : 0;
+    }
+}
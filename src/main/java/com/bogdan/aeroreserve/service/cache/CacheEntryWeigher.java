@@ -0,0 +1,116 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FareCalendarDayDTO;
+import com.bogdan.aeroreserve.dto.FlightDetailsDTO;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.cache.support.NullValue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Оценка размера записи кэша в байтах для ограничения кэшей по памяти.
+ * Кэши хранят только неизменяемые снимки (DTO, их списки и массивы), поэтому размер
+ * считается по известным типам полей без обхода графа объектов. Оценка приблизительная
+ * (64-битная JVM со сжатыми указателями) и с запасом: строки считаются в UTF-16,
+ * так как названия городов и авиакомпаний в основном кириллические.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 40;
+    private static final int BOXED = 16;
+    private static final int BIG_DECIMAL = 40;
+    private static final int LOCAL_DATE = 24;
+    // LocalDateTime ссылается на отдельные LocalDate и LocalTime
+    private static final int LOCAL_DATE_TIME = 24 + LOCAL_DATE + 24;
+    // Узел хеш-таблицы Caffeine с ссылками на ключ и значение и данными политики вытеснения
+    private static final int CACHE_NODE = 64;
+    // Оценка для типов, о которых оценщик не знает
+    private static final int UNKNOWN = 256;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long size = CACHE_NODE + sizeOf(key) + sizeOf(value);
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Приблизительный размер объекта вместе с объектами, на которые он ссылается
+     */
+    static long sizeOf(Object value) {
+        if (value == null || value instanceof NullValue || value instanceof Enum<?>) {
+            // Общие экземпляры, память под них не зависит от записи
+            return 0;
+        }
+        if (value instanceof String string) {
+            return STRING + 2L * string.length();
+        }
+        if (value instanceof BigDecimal) {
+            return BIG_DECIMAL;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return BOXED;
+        }
+        if (value instanceof LocalDateTime) {
+            return LOCAL_DATE_TIME;
+        }
+        if (value instanceof LocalDate) {
+            return LOCAL_DATE;
+        }
+        if (value instanceof FlightSummaryDTO flight) {
+            return OBJECT_HEADER + 12L * REFERENCE
+                    + sizeOf(flight.getId()) + sizeOf(flight.getFlightNumber())
+                    + sizeOf(flight.getDepartureCity()) + sizeOf(flight.getArrivalCity())
+                    + sizeOf(flight.getDepartureTime()) + sizeOf(flight.getArrivalTime())
+                    + sizeOf(flight.getPrice()) + sizeOf(flight.getAirlineName())
+                    + sizeOf(flight.getAircraftModel()) + sizeOf(flight.getTotalSeats())
+                    + sizeOf(flight.getAvailableSeats());
+        }
+        if (value instanceof FlightDetailsDTO flight) {
+            return OBJECT_HEADER + 12L * REFERENCE
+                    + sizeOf(flight.getId()) + sizeOf(flight.getFlightNumber())
+                    + sizeOf(flight.getDepartureCity()) + sizeOf(flight.getArrivalCity())
+                    + sizeOf(flight.getDepartureTime()) + sizeOf(flight.getArrivalTime())
+                    + sizeOf(flight.getPrice()) + sizeOf(flight.getAirlineName())
+                    + sizeOf(flight.getAircraftManufacturer()) + sizeOf(flight.getAircraftModel())
+                    + sizeOf(flight.getTotalSeats());
+        }
+        if (value instanceof FlightPageDTO page) {
+            return OBJECT_HEADER + 5L * REFERENCE
+                    + sizeOf(page.getFlights()) + sizeOf(page.getNextToken())
+                    + sizeOf(page.getPreviousToken()) + sizeOf(page.getTotalItems());
+        }
+        if (value instanceof FlightPageCache.CachedPage cached) {
+            return OBJECT_HEADER + 4L * REFERENCE + Long.BYTES
+                    + sizeOf(cached.page()) + sizeOf(cached.firstDay()) + sizeOf(cached.lastDay());
+        }
+        if (value instanceof FareCalendarDayDTO day) {
+            return OBJECT_HEADER + 4L * REFERENCE
+                    + sizeOf(day.getDate()) + sizeOf(day.getLowestPrice());
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = OBJECT_HEADER + OBJECT_HEADER + (long) collection.size() * REFERENCE;
+            for (Object element : collection) {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+        if (value instanceof Object[] array) {
+            long size = OBJECT_HEADER + (long) array.length * REFERENCE;
+            for (Object element : array) {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+        return UNKNOWN;
+    }
+}
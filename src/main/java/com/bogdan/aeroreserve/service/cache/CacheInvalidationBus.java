@@ -0,0 +1,349 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Шина инвалидации кэшей между узлами приложения через PostgreSQL LISTEN/NOTIFY.
+ * Локальные инвалидации (изменение рейса, сброс кэша рейса или всех кэшей) копятся
+ * в множестве, где повторы схлопываются, и раз в интервал отправляются пачкой
+ * через pg_notify. Каждый узел слушает канал на отдельном соединении и применяет
+ * чужие пачки к своим кэшам; изменение рейса публикуется локально как удаленное
+ * FlightChangedEvent, поэтому версии областей кэша и in-memory индексы поиска
+ * обновляются так же, как на узле, где рейс изменили. Изменения доступности мест
+ * передаются так же и публикуются как удаленные SeatAvailabilityChangedEvent, чтобы
+ * подписчики потока мест на любом узле видели бронирования всех узлов. После потери соединения
+ * уведомления могли быть пропущены, поэтому при переподключении локальные кэши очищаются.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    // Ограничение PostgreSQL на размер payload уведомления - 8000 байт
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final String ALL = "*";
+    private static final String FLIGHT = "F";
+    private static final String DETAILS = "D";
+    private static final String SEAT_TAKEN = "T";
+    private static final String SEAT_RELEASED = "R";
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final String ITEM_SEPARATOR = "\n";
+
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String channel;
+    private final Duration reconnectDelay;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Инвалидации, ожидающие отправки; повторы схлопываются
+    private Set<String> pending = new LinkedHashSet<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    private final Counter sentBatches;
+    private final Counter sentItems;
+    private final Counter receivedItems;
+
+    public CacheInvalidationBus(CacheManager cacheManager, ApplicationEventPublisher eventPublisher,
+                                JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.cache.cluster.enabled:false}") boolean enabled,
+                                @Value("${app.cache.cluster.channel:aeroreserve_cache}") String channel,
+                                @Value("${app.cache.cluster.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel name: " + channel);
+        }
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.reconnectDelay = reconnectDelay;
+        this.sentBatches = Counter.builder("cache.cluster.invalidations")
+                .description("Отправленные пачки инвалидаций кэшей").tag("type", "batches-sent")
+                .register(meterRegistry);
+        this.sentItems = Counter.builder("cache.cluster.invalidations")
+                .description("Отправленные инвалидации кэшей после схлопывания повторов").tag("type", "sent")
+                .register(meterRegistry);
+        this.receivedItems = Counter.builder("cache.cluster.invalidations")
+                .description("Примененные инвалидации кэшей с других узлов").tag("type", "received")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Передает изменение рейса другим узлам после фиксации транзакции
+     *
+     * @param event событие изменения рейса
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        FlightSummaryDTO previous = event.getPrevious();
+        if (previous == null) {
+            enqueue(FLIGHT + event.getFlightId());
+        } else {
+            enqueue(FLIGHT + event.getFlightId()
+                    + FIELD_SEPARATOR + sanitize(previous.getDepartureCity())
+                    + FIELD_SEPARATOR + sanitize(previous.getArrivalCity())
+                    + FIELD_SEPARATOR + previous.getDepartureTime());
+        }
+    }
+
+    /**
+     * Передает другим узлам изменение доступности места.
+     * Событие публикуется после фиксации транзакции, поэтому слушатель обычный.
+     *
+     * @param event событие изменения доступности места
+     */
+    @EventListener
+    public void onSeatAvailabilityChanged(SeatAvailabilityChangedEvent event) {
+        if (event.isRemote() || !enabled) {
+            return;
+        }
+        String seat = event.getFlightId() + String.valueOf(FIELD_SEPARATOR) + event.getSeatId();
+        synchronized (this) {
+            // В пачке остается только последнее состояние места
+            pending.remove((event.isAvailable() ? SEAT_TAKEN : SEAT_RELEASED) + seat);
+            pending.add((event.isAvailable() ? SEAT_RELEASED : SEAT_TAKEN) + seat);
+        }
+    }
+
+    /**
+     * Передает другим узлам сброс кэша деталей рейса
+     *
+     * @param flightId идентификатор рейса
+     */
+    public void publishFlightEviction(Long flightId) {
+        enqueue(DETAILS + flightId);
+    }
+
+    /**
+     * Передает другим узлам полную очистку кэшей
+     */
+    public void publishEvictAll() {
+        enqueue(ALL);
+    }
+
+    /**
+     * Отправляет накопленные инвалидации пачками в пределах размера уведомления
+     */
+    @Scheduled(fixedDelayString = "${app.cache.cluster.flush-interval:PT0.2S}")
+    public void flush() {
+        Set<String> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        }
+        // Полная очистка поглощает все остальные инвалидации пачки
+        List<String> items = batch.contains(ALL) ? List.of(ALL) : new ArrayList<>(batch);
+
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        int payloadBytes = nodeId.length();
+        for (String item : items) {
+            int itemBytes = item.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (payloadBytes + itemBytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(nodeId);
+                payloadBytes = nodeId.length();
+            }
+            payload.append(ITEM_SEPARATOR).append(item);
+            payloadBytes += itemBytes;
+        }
+        payloads.add(payload.toString());
+
+        try {
+            for (String message : payloads) {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message);
+            }
+            sentBatches.increment(payloads.size());
+            sentItems.increment(items.size());
+        } catch (RuntimeException e) {
+            // Неотправленные инвалидации возвращаются в очередь до следующей попытки
+            log.warn("Failed to publish {} cache invalidations: {}", items.size(), e.getMessage());
+            synchronized (this) {
+                pending.addAll(items);
+            }
+        }
+    }
+
+    /**
+     * Запускает прослушивание канала инвалидаций
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+        log.info("Listening for cache invalidations on channel {} as node {}", channel, nodeId);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void enqueue(String item) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            pending.add(item);
+        }
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (reconnecting) {
+                    // Уведомления, отправленные без соединения, потеряны
+                    log.warn("Cache invalidation listener reconnected, clearing local caches");
+                    clearLocalCaches();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications != null && notifications.length > 0) {
+                        apply(notifications);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost connection: {}", e.getMessage());
+                reconnecting = true;
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Применяет уведомления других узлов, полученные за один опрос, схлопывая повторы
+    private void apply(PGNotification[] notifications) {
+        Set<String> items = new LinkedHashSet<>();
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split(ITEM_SEPARATOR);
+            if (parts.length < 2 || parts[0].equals(nodeId)) {
+                continue;
+            }
+            items.addAll(List.of(parts).subList(1, parts.length));
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        receivedItems.increment(items.size());
+
+        if (items.contains(ALL)) {
+            clearLocalCaches();
+            items.remove(ALL);
+        }
+        for (String item : items) {
+            try {
+                applyItem(item);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply cache invalidation '{}': {}", item, e.getMessage());
+            }
+        }
+        log.debug("Applied {} cache invalidations from other nodes", items.size());
+    }
+
+    private void applyItem(String item) {
+        if (item.startsWith(DETAILS)) {
+            evict("flightDetails", "detail-" + Long.valueOf(item.substring(DETAILS.length())));
+        } else if (item.startsWith(SEAT_TAKEN) || item.startsWith(SEAT_RELEASED)) {
+            String[] fields = item.substring(1).split(String.valueOf(FIELD_SEPARATOR));
+            eventPublisher.publishEvent(new SeatAvailabilityChangedEvent(Long.valueOf(fields[0]),
+                    Long.valueOf(fields[1]), item.startsWith(SEAT_RELEASED), true));
+        } else if (item.startsWith(FLIGHT)) {
+            String[] fields = item.substring(FLIGHT.length()).split(String.valueOf(FIELD_SEPARATOR), -1);
+            Long flightId = Long.valueOf(fields[0]);
+            FlightSummaryDTO previous = fields.length == 4
+                    ? new FlightSummaryDTO(flightId, null, fields[1], fields[2], LocalDateTime.parse(fields[3]),
+                            null, null, null, null, null, null, null)
+                    : null;
+            eventPublisher.publishEvent(new FlightChangedEvent(flightId, previous, true));
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clearLocalCaches() {
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private static String sanitize(String city) {
+        return city != null ? city.replace(FIELD_SEPARATOR, ' ').replace('\n', ' ') : "";
+    }
+}
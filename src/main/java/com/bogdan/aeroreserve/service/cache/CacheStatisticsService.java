@@ -0,0 +1,75 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.CacheStatsDTO;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Статистика кэшей приложения для страницы администратора.
+ * Показатели попаданий, загрузок и вытеснений читаются из статистики Caffeine
+ * (те же значения Spring Boot публикует в Micrometer как cache.gets, cache.evictions
+ * и cache.load.duration), к ним добавляются занимаемая память, распределение записей
+ * по семействам ключей и самые запрашиваемые ключи.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsService {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final CacheManager cacheManager;
+    private final HotKeyTracker hotKeyTracker;
+
+    /**
+     * Возвращает статистику всех кэшей Caffeine по названию кэша
+     *
+     * @return статистика кэшей
+     */
+    public List<CacheStatsDTO> getCacheStatistics() {
+        List<CacheStatsDTO> statistics = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames().stream().sorted().toList()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                statistics.add(toStats(name, caffeineCache.getNativeCache()));
+            }
+        }
+        return statistics;
+    }
+
+    private CacheStatsDTO toStats(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        CacheStats stats = cache.stats();
+        Policy.Eviction<Object, Object> eviction = cache.policy().eviction().orElse(null);
+        long weightedSize = eviction != null ? eviction.weightedSize().orElse(0) : 0;
+        long maximumWeight = eviction != null ? eviction.getMaximum() : 0;
+
+        return new CacheStatsDTO(name, stats.requestCount(), stats.hitRate(), stats.missRate(),
+                stats.loadCount(), stats.averageLoadPenalty() / NANOS_PER_MILLI, stats.evictionCount(),
+                cache.estimatedSize(), weightedSize, maximumWeight,
+                keyFamilies(cache), hotKeyTracker.hotKeys(name));
+    }
+
+    // Количество записей по части ключа до первого дефиса: много вариантов одного семейства
+    // при низкой доле попаданий указывает на слишком подробный ключ
+    private static Map<String, Long> keyFamilies(com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        Map<String, Long> families = new TreeMap<>();
+        for (Object key : cache.asMap().keySet()) {
+            String value = String.valueOf(key);
+            int separator = value.indexOf('-');
+            families.merge(separator > 0 ? value.substring(0, separator) : value, 1L, Long::sum);
+        }
+        return families;
+    }
+}
@@ -0,0 +1,176 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FlightDetailsDTO;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.SearchKeyDTO;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.service.search.FareCalendarService;
+import com.bogdan.aeroreserve.service.search.SearchKeyRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогрев кэшей после запуска приложения.
+ * Выполняется после миграций Flyway и создания контекста, но до того, как приложение
+ * сообщает о готовности принимать трафик (readiness), поэтому балансировщик направляет
+ * запросы только на узел с заполненными кэшами. Заполняются первые страницы списка рейсов,
+ * снимки рейсов ближайших дней и календари цен самых частых направлений поиска.
+ * Задачи выполняются параллельно с ограниченным числом потоков, чтобы не занять весь пул
+ * соединений; при превышении бюджета времени узел объявляется готовым, а незавершенные
+ * задачи дорабатывают в фоне.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class CacheWarmUp implements ApplicationRunner {
+
+    private final FlightPageCache flightPageCache;
+    private final FlightRepository flightRepository;
+    private final FareCalendarService fareCalendarService;
+    private final SearchKeyRecorder searchKeyRecorder;
+    private final Cache flightDetailsCache;
+    private final boolean enabled;
+    private final int concurrency;
+    private final Duration timeBudget;
+    private final int listingPages;
+    private final int listingPageSize;
+    private final int detailDays;
+    private final int popularSearches;
+    private final Duration popularSearchPeriod;
+
+    public CacheWarmUp(FlightPageCache flightPageCache, FlightRepository flightRepository,
+                       FareCalendarService fareCalendarService, SearchKeyRecorder searchKeyRecorder,
+                       CacheManager cacheManager,
+                       @Value("${app.cache.warm-up.enabled:true}") boolean enabled,
+                       @Value("${app.cache.warm-up.concurrency:4}") int concurrency,
+                       @Value("${app.cache.warm-up.time-budget:PT60S}") Duration timeBudget,
+                       @Value("${app.cache.warm-up.listing-pages:3}") int listingPages,
+                       @Value("${app.cache.warm-up.listing-page-size:10}") int listingPageSize,
+                       @Value("${app.cache.warm-up.detail-days:7}") int detailDays,
+                       @Value("${app.cache.warm-up.popular-searches:50}") int popularSearches,
+                       @Value("${app.cache.warm-up.popular-search-period:P30D}") Duration popularSearchPeriod) {
+        this.flightPageCache = flightPageCache;
+        this.flightRepository = flightRepository;
+        this.fareCalendarService = fareCalendarService;
+        this.searchKeyRecorder = searchKeyRecorder;
+        this.flightDetailsCache = cacheManager.getCache("flightDetails");
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+        this.timeBudget = timeBudget;
+        this.listingPages = listingPages;
+        this.listingPageSize = listingPageSize;
+        this.detailDays = detailDays;
+        this.popularSearches = popularSearches;
+        this.popularSearchPeriod = popularSearchPeriod;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger warmed = new AtomicInteger();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(submit(executor, "listing pages", () -> warmListing(warmed)));
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < detailDays; i++) {
+            LocalDate day = today.plusDays(i);
+            tasks.add(submit(executor, "flight details " + day, () -> warmDetails(day, warmed)));
+        }
+        for (SearchKeyDTO search : findPopularSearches()) {
+            tasks.add(submit(executor, "fare calendar " + search.getDepartureCity() + " -> " + search.getArrivalCity(),
+                    () -> warmFareCalendar(search, today, warmed)));
+        }
+        executor.shutdown();
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                    .get(timeBudget.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Cache warm-up finished: {} entries from {} tasks in {} ms",
+                    warmed.get(), tasks.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (TimeoutException e) {
+            log.warn("Cache warm-up exceeded time budget {}: {} entries so far, remaining tasks continue in background",
+                    timeBudget, warmed.get());
+        } catch (ExecutionException e) {
+            log.warn("Cache warm-up failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Первые страницы читаются по цепочке токенов, как их открывает пользователь
+    private void warmListing(AtomicInteger warmed) {
+        String token = null;
+        for (int page = 0; page < listingPages; page++) {
+            FlightPageDTO flights = flightPageCache.getPage(token, listingPageSize);
+            warmed.incrementAndGet();
+            token = flights.getNextToken();
+            if (token == null) {
+                break;
+            }
+        }
+    }
+
+    // Снимки рейсов дня загружаются одним запросом; уже загруженные запросами записи не заменяются
+    private void warmDetails(LocalDate day, AtomicInteger warmed) {
+        List<FlightDetailsDTO> flights = flightRepository.findDetailsDepartingBetween(
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        for (FlightDetailsDTO flight : flights) {
+            flightDetailsCache.putIfAbsent(FlightDetailsCacheLoader.DETAIL_PREFIX + flight.getId(), flight);
+        }
+        warmed.addAndGet(flights.size());
+    }
+
+    private void warmFareCalendar(SearchKeyDTO search, LocalDate today, AtomicInteger warmed) {
+        fareCalendarService.getCalendar(search.getDepartureCity(), search.getArrivalCity(),
+                today, today.plusDays(Math.max(detailDays - 1, 0)));
+        warmed.incrementAndGet();
+    }
+
+    private List<SearchKeyDTO> findPopularSearches() {
+        try {
+            return searchKeyRecorder.findPopular(LocalDateTime.now().minus(popularSearchPeriod), popularSearches);
+        } catch (RuntimeException e) {
+            log.warn("Failed to load popular searches for cache warm-up: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static CompletableFuture<Void> submit(ExecutorService executor, String name, Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Cache warm-up task '{}' failed: {}", name, e.getMessage());
+            }
+        }, executor);
+    }
+}
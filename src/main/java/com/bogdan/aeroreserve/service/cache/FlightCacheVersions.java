@@ -0,0 +1,188 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии областей кэша рейсов для точечной инвалидации.
+ * Ключ записи календаря цен включает версию пары (неделя, направление): изменение рейса
+ * увеличивает версии только своих маршрутов в своих неделях (до и после изменения), поэтому
+ * записи других дат и направлений остаются в кэше, а устаревшие записи больше не находятся
+ * и вытесняются по TTL. Календарь ищет города по подстроке, поэтому версия запроса - максимум
+ * версий маршрутов недели, подходящих под подстроки; версии берутся из общей возрастающей
+ * последовательности, и максимум меняется при изменении любого подходящего маршрута.
+ * Страница общего списка рейсов охватывает интервал дней вылета, известный только после
+ * загрузки, поэтому для списка хранятся версии дней вылета: страница устарела, если после
+ * ее загрузки изменился рейс, день вылета которого (до или после изменения) попадает в интервал.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Component("flightCacheVersions")
+public class FlightCacheVersions {
+
+    private final FlightRepository flightRepository;
+    // Версии выдаются из общей последовательности: удаленная и созданная заново область
+    // не может получить версию, уже использованную в ключах кэша
+    private final AtomicLong sequence = new AtomicLong();
+    // Версии маршрутов по неделям (с понедельника); в неделе хранятся только измененные маршруты
+    private final Map<LocalDate, Map<RouteKey, Long>> weeks = new ConcurrentHashMap<>();
+    // Версии дней вылета для страниц списка рейсов. Дней с рейсами немного, поэтому версии
+    // не удаляются: иначе страница с прошедшими днями могла бы пропустить изменение
+    private final NavigableMap<LocalDate, Long> listingDays = new ConcurrentSkipListMap<>();
+    // Версия изменения, день вылета которого неизвестен: устаревают все страницы
+    private volatile long listingReset;
+    private final Counter weekBumps;
+    private final Counter listingBumps;
+
+    public FlightCacheVersions(FlightRepository flightRepository, MeterRegistry meterRegistry) {
+        this.flightRepository = flightRepository;
+        this.weekBumps = bumpCounter(meterRegistry, "week");
+        this.listingBumps = bumpCounter(meterRegistry, "listing");
+    }
+
+    /**
+     * Версия недели, содержащей указанный день, для ключей календаря цен направления
+     *
+     * @param day день недели
+     * @param from город вылета или его часть в нижнем регистре (null - любой)
+     * @param to город прилета или его часть в нижнем регистре (null - любой)
+     * @return максимальная версия подходящих маршрутов недели или 0
+     */
+    public long week(LocalDate day, String from, String to) {
+        Map<RouteKey, Long> routes = weeks.get(mondayOf(day));
+        if (routes == null) {
+            return 0L;
+        }
+        long version = 0L;
+        for (Map.Entry<RouteKey, Long> entry : routes.entrySet()) {
+            RouteKey route = entry.getKey();
+            if ((from == null || route.from().contains(from)) && (to == null || route.to().contains(to))) {
+                version = Math.max(version, entry.getValue());
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Текущая версия для страниц списка рейсов. Фиксируется перед загрузкой страницы:
+     * изменения, зафиксированные после этого момента, сделают страницу устаревшей
+     */
+    public long listingVersion() {
+        return sequence.get();
+    }
+
+    /**
+     * Проверяет, изменялись ли рейсы с днем вылета в интервале после указанной версии
+     *
+     * @param firstDay первый день интервала страницы
+     * @param lastDay последний день интервала страницы включительно
+     * @param version версия, зафиксированная перед загрузкой страницы
+     * @return true если страница устарела
+     */
+    public boolean listingChangedSince(LocalDate firstDay, LocalDate lastDay, long version) {
+        if (listingReset > version) {
+            return true;
+        }
+        for (long dayVersion : listingDays.subMap(firstDay, true, lastDay, true).values()) {
+            if (dayVersion > version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Увеличивает версии областей рейса до и после изменения после фиксации транзакции
+     *
+     * @param event событие изменения рейса
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        FlightSummaryDTO current = flightRepository.findSummaryById(event.getFlightId()).orElse(null);
+        if (event.getPrevious() == null && current == null) {
+            listingReset = sequence.incrementAndGet();
+            listingBumps.increment();
+            return;
+        }
+        if (event.getPrevious() != null) {
+            bump(event.getPrevious());
+        }
+        if (current != null) {
+            bump(current);
+        }
+    }
+
+    /**
+     * Увеличивает версию недели и маршрута рейса, который распродан или снова получил свободные
+     * места: календарь цен показывает минимальную цену только среди рейсов со свободными местами
+     *
+     * @param flight сводка рейса
+     */
+    public void availabilityChanged(FlightSummaryDTO flight) {
+        bumpWeek(flight);
+    }
+
+    /**
+     * Удаляет версии прошедших недель: записи кэша для них больше не запрашиваются
+     */
+    @Scheduled(cron = "${app.cache.version-prune-cron:0 15 3 * * *}")
+    public void pruneVersions() {
+        LocalDate currentWeek = mondayOf(LocalDate.now());
+        int before = weeks.size();
+        weeks.keySet().removeIf(week -> week.isBefore(currentWeek));
+        log.info("Pruned cache version stamps of {} past weeks", before - weeks.size());
+    }
+
+    private void bump(FlightSummaryDTO flight) {
+        bumpWeek(flight);
+        listingDays.merge(flight.getDepartureTime().toLocalDate(), sequence.incrementAndGet(), Math::max);
+        listingBumps.increment();
+    }
+
+    private void bumpWeek(FlightSummaryDTO flight) {
+        RouteKey route = new RouteKey(normalize(flight.getDepartureCity()), normalize(flight.getArrivalCity()));
+        weeks.computeIfAbsent(mondayOf(flight.getDepartureTime().toLocalDate()), week -> new ConcurrentHashMap<>())
+                .merge(route, sequence.incrementAndGet(), Math::max);
+        weekBumps.increment();
+    }
+
+    private static LocalDate mondayOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static String normalize(String city) {
+        return city != null ? city.toLowerCase() : "";
+    }
+
+    private static Counter bumpCounter(MeterRegistry meterRegistry, String scope) {
+        return Counter.builder("flights.cache.version.bumps")
+                .description("Увеличения версий областей кэша рейсов")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Маршрут: названия городов вылета и прилета в нижнем регистре
+     */
+    private record RouteKey(String from, String to) {
+    }
+}
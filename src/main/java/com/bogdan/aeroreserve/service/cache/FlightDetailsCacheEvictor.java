@@ -0,0 +1,37 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Удаляет запись рейса из кэша flightDetails после фиксации его изменения.
+ * Удаление до фиксации позволило бы параллельному запросу загрузить в кэш еще не
+ * измененный рейс, который оставался бы там до истечения записи.
+ * Изменения с других узлов приходят тем же событием от CacheInvalidationBus.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+public class FlightDetailsCacheEvictor {
+
+    private final Cache flightDetailsCache;
+
+    public FlightDetailsCacheEvictor(CacheManager cacheManager) {
+        this.flightDetailsCache = cacheManager.getCache("flightDetails");
+    }
+
+    /**
+     * Удаляет запись измененного рейса из кэша
+     *
+     * @param event событие изменения рейса
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        flightDetailsCache.evict(FlightDetailsCacheLoader.DETAIL_PREFIX + event.getFlightId());
+    }
+}
@@ -0,0 +1,43 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.support.NullValue;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Загрузчик кэша flightDetails по ключу записи.
+ * Используется Caffeine для упреждающего обновления: при обращении к записи старше
+ * refresh-after-write она перезагружается в фоне, а запросы продолжают получать
+ * текущее значение, поэтому горячие рейсы не истекают одновременно.
+ * Значения соответствуют тому, что кладет в кэш FlightService: содержимое Optional
+ * или NullValue для отсутствующего рейса.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class FlightDetailsCacheLoader implements CacheLoader<Object, Object> {
+
+    public static final String DETAIL_PREFIX = "detail-";
+
+    private final FlightRepository flightRepository;
+
+    @Override
+    public Object load(Object key) {
+        String cacheKey = key.toString();
+        if (cacheKey.startsWith(DETAIL_PREFIX)) {
+            Long id = Long.valueOf(cacheKey.substring(DETAIL_PREFIX.length()));
+            return toStoreValue(flightRepository.findDetailsById(id));
+        }
+        throw new IllegalArgumentException("Unsupported flightDetails cache key: " + cacheKey);
+    }
+
+    private static Object toStoreValue(Optional<?> value) {
+        return value.<Object>map(found -> found).orElse(NullValue.INSTANCE);
+    }
+}
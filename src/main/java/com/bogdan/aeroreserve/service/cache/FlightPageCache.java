@@ -0,0 +1,104 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FlightCursor;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Кэш страниц общего списка рейсов.
+ * Страница читается от позиции (время вылета, id), поэтому любая страница стоит как первая;
+ * общее количество - оценка по статистике таблицы. Вместе со страницей хранится интервал
+ * дней вылета, от которого зависит ее содержимое, и версия на момент загрузки: страница
+ * перезагружается, только если изменился рейс с днем вылета в этом интервале
+ * (см. FlightCacheVersions). Количество свободных мест в кэшированной странице не обновляется
+ * при захвате и освобождении мест: актуальные счетчики накладывает FlightService при каждом обращении.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+public class FlightPageCache {
+
+    private final FlightRepository flightRepository;
+    private final FlightCacheVersions cacheVersions;
+    private final Cache pageCache;
+
+    public FlightPageCache(FlightRepository flightRepository, FlightCacheVersions cacheVersions,
+                           CacheManager cacheManager) {
+        this.flightRepository = flightRepository;
+        this.cacheVersions = cacheVersions;
+        this.pageCache = cacheManager.getCache("flights");
+    }
+
+    /**
+     * Возвращает страницу списка рейсов из кэша или загружает ее
+     *
+     * @param pageToken токен позиции страницы (null для первой страницы)
+     * @param size размер страницы
+     * @return страница сводок рейсов
+     */
+    @Transactional(readOnly = true)
+    public FlightPageDTO getPage(String pageToken, int size) {
+        String key = "page-" + pageToken + "-" + size;
+        CachedPage cached = pageCache.get(key, CachedPage.class);
+        if (cached != null && !cacheVersions.listingChangedSince(cached.firstDay(), cached.lastDay(), cached.version())) {
+            return cached.page();
+        }
+
+        // Версия фиксируется до чтения: изменение во время загрузки сделает страницу устаревшей
+        long version = cacheVersions.listingVersion();
+        FlightCursor cursor = FlightCursor.decode(pageToken).orElse(null);
+        Limit limit = Limit.of(size + 1);
+
+        List<FlightSummaryDTO> fetched;
+        if (cursor == null) {
+            fetched = flightRepository.findFirstSummaries(limit);
+        } else if (cursor.isBackward()) {
+            List<FlightSummaryDTO> before = new ArrayList<>(
+                    flightRepository.findSummariesBefore(cursor.getDepartureTime(), cursor.getId(), limit));
+            Collections.reverse(before);
+            fetched = before;
+        } else {
+            fetched = flightRepository.findSummariesAfter(cursor.getDepartureTime(), cursor.getId(), limit);
+        }
+
+        long estimate = flightRepository.estimateFlightCount();
+        FlightPageDTO page = FlightPageDTO.of(fetched, size, cursor, estimate >= 0 ? estimate : null, true);
+
+        // Страница зависит от рейсов между позицией и последним прочитанным рейсом;
+        // если рейсы в направлении чтения закончились, то от всех рейсов за позицией
+        boolean more = fetched.size() > size;
+        LocalDate firstDay;
+        LocalDate lastDay;
+        if (cursor != null && cursor.isBackward()) {
+            firstDay = more ? dayOf(fetched.get(0)) : LocalDate.MIN;
+            lastDay = cursor.getDepartureTime().toLocalDate();
+        } else {
+            firstDay = cursor != null ? cursor.getDepartureTime().toLocalDate() : LocalDate.MIN;
+            lastDay = more ? dayOf(fetched.get(fetched.size() - 1)) : LocalDate.MAX;
+        }
+        pageCache.put(key, new CachedPage(page, firstDay, lastDay, version));
+        return page;
+    }
+
+    private static LocalDate dayOf(FlightSummaryDTO flight) {
+        return flight.getDepartureTime().toLocalDate();
+    }
+
+    /**
+     * Страница с интервалом дней вылета, от которого зависит ее содержимое, и версией загрузки
+     */
+    record CachedPage(FlightPageDTO page, LocalDate firstDay, LocalDate lastDay, long version) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.HotKeyDTO;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Оценка самых запрашиваемых ключей одного кэша по выборке обращений.
+ * Частоты считаются в count-min sketch фиксированного размера: оценка ключа - минимум
+ * его счетчиков по нескольким хеш-функциям, она может быть завышена коллизиями, но не занижена.
+ * Рядом хранится ограниченный набор кандидатов: ключ попадает в него, если его оценка
+ * выше порога текущего топа, поэтому память не зависит от количества различных ключей.
+ * Счетчики периодически уменьшаются вдвое, чтобы топ отражал недавние обращения.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+class HotKeySketch {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+    private final int sampleRate;
+    private final int topK;
+    private final int candidateCapacity;
+    private final AtomicLongArray counters;
+    private final AtomicLong sampled = new AtomicLong();
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+    private final ReentrantLock trimLock = new ReentrantLock();
+    // Наименьшая оценка ключа, оставшегося в кандидатах после последнего сокращения
+    private volatile long admissionThreshold;
+
+    HotKeySketch(int width, int sampleRate, int topK) {
+        this.width = Integer.highestOneBit(Math.max(width, 16));
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.topK = topK;
+        this.candidateCapacity = topK * 4;
+        this.counters = new AtomicLongArray(DEPTH * this.width);
+    }
+
+    /**
+     * Учитывает обращение к ключу с вероятностью 1/sampleRate
+     */
+    void record(Object key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        String value = String.valueOf(key);
+        int hash = spread(value.hashCode());
+        int step = spread(hash * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = (hash + row * step) & (width - 1);
+            estimate = Math.min(estimate, counters.incrementAndGet(row * width + column));
+        }
+        sampled.incrementAndGet();
+
+        if (estimate > admissionThreshold || candidates.containsKey(value)) {
+            candidates.put(value, estimate);
+            if (candidates.size() > candidateCapacity && trimLock.tryLock()) {
+                try {
+                    trim();
+                } finally {
+                    trimLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает самые запрашиваемые ключи по убыванию оценки
+     */
+    List<HotKeyDTO> top() {
+        long total = Math.max(sampled.get(), 1);
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topK)
+                .map(entry -> new HotKeyDTO(entry.getKey(), entry.getValue() * sampleRate,
+                        (double) entry.getValue() / total))
+                .toList();
+    }
+
+    /**
+     * Доля обращений выборки, приходящаяся на топ ключей
+     */
+    double topShare() {
+        return top().stream().mapToDouble(HotKeyDTO::getShare).sum();
+    }
+
+    /**
+     * Уменьшает все счетчики вдвое; ключи с нулевой оценкой исключаются из кандидатов
+     */
+    void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, count -> count >> 1);
+        }
+        sampled.updateAndGet(count -> count >> 1);
+        candidates.replaceAll((key, count) -> count >> 1);
+        candidates.values().removeIf(count -> count == 0);
+        admissionThreshold >>= 1;
+    }
+
+    // Оставляет в кандидатах удвоенный топ и поднимает порог допуска до оценки последнего из них
+    private void trim() {
+        List<Map.Entry<String, Long>> sorted = candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .toList();
+        int keep = Math.min(topK * 2, sorted.size());
+        for (int i = keep; i < sorted.size(); i++) {
+            candidates.remove(sorted.get(i).getKey());
+        }
+        if (keep > 0) {
+            admissionThreshold = sorted.get(keep - 1).getValue();
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
@@ -0,0 +1,99 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.HotKeyDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учет часто запрашиваемых ключей кэшей.
+ * Кэши, созданные через {@link #instrument}, передают выборку обращений в
+ * {@link HotKeySketch} своего кэша. Доля обращений к топу ключей публикуется
+ * в Micrometer как cache.hotkeys.top.share; сами ключи в метки метрик не попадают,
+ * чтобы не создавать неограниченное число временных рядов, и показываются на странице
+ * администратора.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+public class HotKeyTracker {
+
+    private final MeterRegistry meterRegistry;
+    private final int sampleRate;
+    private final int topK;
+    private final int sketchWidth;
+    private final Map<String, HotKeySketch> sketches = new ConcurrentHashMap<>();
+
+    public HotKeyTracker(MeterRegistry meterRegistry,
+                         @Value("${app.cache.telemetry.sample-rate:8}") int sampleRate,
+                         @Value("${app.cache.telemetry.top-k:20}") int topK,
+                         @Value("${app.cache.telemetry.sketch-width:2048}") int sketchWidth) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+        this.topK = topK;
+        this.sketchWidth = sketchWidth;
+    }
+
+    /**
+     * Оборачивает Caffeine-кэш так, что обращения к нему учитываются в выборке ключей
+     *
+     * @param name название кэша
+     * @param cache кэш Caffeine
+     * @param allowNullValues хранить ли отсутствующие значения
+     * @return кэш Spring с учетом обращений
+     */
+    public CaffeineCache instrument(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                    boolean allowNullValues) {
+        HotKeySketch sketch = sketches.computeIfAbsent(name, this::createSketch);
+        return new CaffeineCache(name, cache, allowNullValues) {
+            @Override
+            protected Object lookup(Object key) {
+                sketch.record(key);
+                return super.lookup(key);
+            }
+
+            @Override
+            public <T> T get(Object key, Callable<T> valueLoader) {
+                sketch.record(key);
+                return super.get(key, valueLoader);
+            }
+        };
+    }
+
+    /**
+     * Возвращает самые запрашиваемые ключи кэша
+     *
+     * @param cacheName название кэша
+     * @return ключи по убыванию оценки обращений, пустой список для кэша без учета
+     */
+    public List<HotKeyDTO> hotKeys(String cacheName) {
+        HotKeySketch sketch = sketches.get(cacheName);
+        return sketch != null ? sketch.top() : List.of();
+    }
+
+    /**
+     * Уменьшает накопленные частоты вдвое, чтобы топ отражал недавние обращения
+     */
+    @Scheduled(fixedDelayString = "${app.cache.telemetry.decay-interval:PT5M}")
+    public void decay() {
+        sketches.values().forEach(HotKeySketch::decay);
+    }
+
+    private HotKeySketch createSketch(String name) {
+        HotKeySketch sketch = new HotKeySketch(sketchWidth, sampleRate, topK);
+        Gauge.builder("cache.hotkeys.top.share", sketch, HotKeySketch::topShare)
+                .description("Доля выборки обращений, приходящаяся на самые запрашиваемые ключи")
+                .tag("cache", name)
+                .register(meterRegistry);
+        return sketch;
+    }
+}
@@ -0,0 +1,157 @@
+package com.bogdan.aeroreserve.service.core;
+
+import com.bogdan.aeroreserve.dto.RollupDTO;
+import com.bogdan.aeroreserve.dto.RollupDeltaDTO;
+import com.bogdan.aeroreserve.enums.BookingStatus;
+import com.bogdan.aeroreserve.enums.RollupDimension;
+import com.bogdan.aeroreserve.enums.RollupPeriod;
+import com.bogdan.aeroreserve.event.BookingStatusChangedEvent;
+import com.bogdan.aeroreserve.repository.BookingRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Сервис агрегированных показателей продаж по направлениям, авиакомпаниям и периодам.
+ * Показатели ведутся по событиям изменения статуса бронирований: бронирования учитываются
+ * при создании, выручка - при подтверждении оплаты, возвраты - при возврате средств.
+ * Приращения накапливаются в памяти, периодически суммируются по рейсам и записываются одним запросом
+ * в агрегаты дня, недели и месяца вылета, поэтому отчеты не читают таблицу бронирований.
+ * Каждое приращение хранит время события: пачка записывается в транзакции, читающей время
+ * начала последнего пересчета (на любом узле), и приращения событий до него отбрасываются,
+ * так как эти бронирования уже учтены пересчетом.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class BookingRollupService {
+    private final BookingRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Приращения событий, еще не записанные в базу данных
+    private final Queue<PendingDelta> pendingDeltas = new ConcurrentLinkedQueue<>();
+
+    public BookingRollupService(BookingRollupRepository rollupRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Учитывает изменение статуса бронирований рейса после фиксации транзакции
+     *
+     * @param event событие изменения статуса бронирований
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookingStatusChanged(BookingStatusChangedEvent event) {
+        BookingStatus previous = event.getPreviousStatus();
+        BookingStatus current = event.getNewStatus();
+        BigDecimal amount = event.getAmount() != null ? event.getAmount() : BigDecimal.ZERO;
+        int count = event.getBookings();
+
+        boolean paid = current == BookingStatus.CONFIRMED && previous != BookingStatus.CONFIRMED;
+        boolean refunded = current == BookingStatus.REFUNDED && previous != BookingStatus.REFUNDED;
+        RollupDeltaDTO delta = new RollupDeltaDTO(
+                previous == null ? count : 0,
+                count * (passengerWeight(current) - passengerWeight(previous)),
+                paid ? amount : BigDecimal.ZERO,
+                refunded ? count : 0,
+                refunded ? amount : BigDecimal.ZERO);
+        if (!delta.isEmpty()) {
+            pendingDeltas.add(new PendingDelta(event.getFlightId(), delta, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Записывает накопленные приращения показателей в базу данных, суммируя их по рейсам.
+     * Приращения событий до начала последнего пересчета отбрасываются.
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.flush-interval:PT5S}")
+    @PreDestroy
+    public synchronized void flushRollups() {
+        List<PendingDelta> batch = new ArrayList<>();
+        for (PendingDelta pending = pendingDeltas.poll(); pending != null; pending = pendingDeltas.poll()) {
+            batch.add(pending);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            Integer flights = transactionTemplate.execute(status -> {
+                LocalDateTime rebuildStartedAt = rollupRepository.lockRebuildStartedAt();
+                Map<Long, RollupDeltaDTO> deltas = new HashMap<>();
+                for (PendingDelta pending : batch) {
+                    if (!pending.recordedAt().isBefore(rebuildStartedAt)) {
+                        deltas.merge(pending.flightId(), pending.delta(), RollupDeltaDTO::plus);
+                    }
+                }
+                rollupRepository.applyDeltas(deltas, LocalDateTime.now());
+                return deltas.size();
+            });
+            log.debug("Flushed booking rollups for {} flights", flights);
+        } catch (RuntimeException e) {
+            // Приращения возвращаются к накопленным со своим временем и будут записаны следующей пачкой
+            log.warn("Failed to flush booking rollups for {} events: {}", batch.size(), e.getMessage());
+            pendingDeltas.addAll(batch);
+        }
+    }
+
+    /**
+     * Пересчитывает агрегаты по бронированиям. Исправляет расхождения, которые не восстанавливаются
+     * приращениями: потерю накопленных приращений при аварийной остановке узла и события,
+     * пропущенные при ошибках. Приращения, накопленные к началу пересчета на любом узле, уже учтены
+     * в бронированиях и отбрасываются при записи; дважды может быть учтено только событие,
+     * зафиксированное до начала пересчета, но полученное обработчиком после него.
+     *
+     * @return количество строк агрегатов
+     */
+    @Scheduled(cron = "${app.statistics.rollup-rebuild-cron:0 45 3 * * *}")
+    public synchronized int rebuildRollups() {
+        int rows = rollupRepository.rebuild(LocalDateTime.now());
+        log.info("Booking rollups rebuilt: {} rows", rows);
+        return rows;
+    }
+
+    /**
+     * Возвращает показатели продаж за периоды, в которые попадают даты диапазона
+     *
+     * @param period период агрегирования
+     * @param dimension разрез: направления или авиакомпании
+     * @param from первая дата диапазона (по дате вылета)
+     * @param to последняя дата диапазона включительно
+     * @return показатели по периодам
+     */
+    public List<RollupDTO> getRollups(RollupPeriod period, RollupDimension dimension, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range: " + from + " - " + to);
+        }
+        return rollupRepository.findRollups(period, dimension, period.startOf(from), period.nextStart(to));
+    }
+
+    // Приращение показателей рейса от одного события и время события
+    private record PendingDelta(Long flightId, RollupDeltaDTO delta, LocalDateTime recordedAt) {
+    }
+
+    // Пассажиром считается подтвержденное бронирование
+    private static int passengerWeight(BookingStatus status) {
+        return status == BookingStatus.CONFIRMED ? 1 : 0;
+    }
+}
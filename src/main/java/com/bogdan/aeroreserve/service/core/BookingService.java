@@ -1,20 +1,35 @@
 package com.bogdan.aeroreserve.service.core;
 
+import com.bogdan.aeroreserve.dto.ExpiredHoldDTO;
 import com.bogdan.aeroreserve.entity.*;
 import com.bogdan.aeroreserve.enums.BookingStatus;
+import com.bogdan.aeroreserve.event.BookingCreatedEvent;
+import com.bogdan.aeroreserve.event.BookingStatusChangedEvent;
 import com.bogdan.aeroreserve.repository.BookingRepository;
 import com.bogdan.aeroreserve.repository.FlightRepository;
 import com.bogdan.aeroreserve.repository.SeatRepository;
+import com.bogdan.aeroreserve.service.generator.IdGenerator;
+import com.bogdan.aeroreserve.service.inventory.SeatInventoryService;
 import com.bogdan.aeroreserve.service.notification.NotificationService;
 import com.bogdan.aeroreserve.service.payment.PaymentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -27,55 +42,178 @@ public class BookingService {
     private final PaymentService paymentService;
     private final NotificationService notificationService;
     private final TicketService ticketService;
+    private final SeatInventoryService seatInventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdGenerator idGenerator;
+
+    private static final String BOOKING_NUMBER_PREFIX = "AR";
+
+    // Время, в течение которого место удерживается за неоплаченным бронированием
+    @Value("${app.booking.hold-ttl:PT15M}")
+    private Duration holdTtl;
 
     // Статусы, которые считаются активными бронированиями
     private static final List<BookingStatus> ACTIVE_STATUSES = Arrays.asList(
+            BookingStatus.PAYMENT_INITIALIZING,
             BookingStatus.PENDING_PAYMENT,
             BookingStatus.CONFIRMED
     );
 
     /**
-     * Создание бронирования с проверкой доступности места
+     * Создание бронирования с атомарным захватом места.
+     * Место занимается одним условным UPDATE, поэтому при гонке за одно место
+     * проигравшие запросы получают пустой результат без исключения и отката транзакции.
+     * Платежное намерение в Stripe создается асинхронно после фиксации транзакции,
+     * до этого бронирование находится в статусе PAYMENT_INITIALIZING.
+     *
+     * @return созданное бронирование или пустой Optional, если место уже занято
      */
     @Transactional
-    public BookingEntity createBooking(UserEntity user, Long flightId, String seatNumber, String passengerName) {
+    public Optional<BookingEntity> createBooking(UserEntity user, Long flightId, String seatNumber, String passengerName) {
         log.info("Creating booking for user: {}, flight: {}, seat: {}",
                 user.getEmail(), flightId, seatNumber);
 
         FlightEntity flight = flightRepository.findById(flightId)
                 .orElseThrow(() -> new RuntimeException("Flight not found with id: " + flightId));
 
-        SeatEntity seat = seatRepository.findByFlightAndSeatNumber(flight, seatNumber)
-                .orElseThrow(() -> new RuntimeException("Seat not found: " + seatNumber));
+        // Резервируем место: успешен только тот запрос, который первым изменил строку
+        Optional<Long> seatId = seatRepository.claimSeat(flightId, seatNumber);
+        if (seatId.isEmpty()) {
+            log.info("Seat {} on flight {} is already taken", seatNumber, flightId);
+            return Optional.empty();
+        }
 
-        if (!isSeatAvailable(seat)) {
-            throw new RuntimeException("Seat is already booked: " + seatNumber);
+        // Создаем бронирование
+        SeatEntity seat = seatRepository.getReferenceById(seatId.get());
+        BookingEntity booking = new BookingEntity(idGenerator.nextCode(BOOKING_NUMBER_PREFIX),
+                user, flight, seat, passengerName);
+        booking.setStatus(BookingStatus.PAYMENT_INITIALIZING);
+        booking.setHoldExpiresAt(LocalDateTime.now().plus(holdTtl));
+        booking = bookingRepository.save(booking);
+        seatInventoryService.seatReserved(flightId, seatId.get());
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(flightId, null, booking.getStatus(),
+                1, booking.getTotalPrice()));
+
+        // Платеж создается после коммита, вне транзакции и без удержания соединения с БД
+        eventPublisher.publishEvent(new BookingCreatedEvent(booking.getId(), booking.getTotalPrice()));
+
+        log.info("Booking created successfully: {}", booking.getBookingNumber());
+        return Optional.of(booking);
+    }
+
+    /**
+     * Создание группового бронирования нескольких мест на одном рейсе.
+     * Все места занимаются одним условным UPDATE: если хотя бы одно место уже занято,
+     * занятые этим запросом места освобождаются и бронирование не создается.
+     * Первое место оформляется ведущим бронированием, остальные вставляются
+     * пакетом JDBC и ссылаются на него. Для всей группы создается один платеж
+     * на общую сумму.
+     *
+     * @param user пользователь, оформляющий бронирование
+     * @param flightId идентификатор рейса
+     * @param seatNumbers номера мест
+     * @param passengerNames имена пассажиров в порядке мест
+     * @return ведущее бронирование группы или пустой Optional, если какое-либо место уже занято
+     */
+    @Transactional
+    public Optional<BookingEntity> createGroupBooking(UserEntity user, Long flightId,
+                                                      List<String> seatNumbers, List<String> passengerNames) {
+        log.info("Creating group booking for user: {}, flight: {}, seats: {}",
+                user.getEmail(), flightId, seatNumbers);
+
+        if (seatNumbers.isEmpty() || seatNumbers.size() != passengerNames.size()) {
+            throw new RuntimeException("Each seat must have a passenger name");
+        }
+        if (new HashSet<>(seatNumbers).size() != seatNumbers.size()) {
+            throw new RuntimeException("Seat numbers must not repeat");
         }
 
-        try {
-            // Резервируем место
-            seat.reserve();
-            seatRepository.save(seat);
+        FlightEntity flight = flightRepository.findById(flightId)
+                .orElseThrow(() -> new RuntimeException("Flight not found with id: " + flightId));
 
-            // Создаем бронирование
-            BookingEntity booking = new BookingEntity(user, flight, seat, passengerName);
-            booking = bookingRepository.save(booking);
+        // Резервируем все места одним запросом
+        Map<String, Long> seatIds = new HashMap<>();
+        for (Object[] row : seatRepository.claimSeats(flightId, seatNumbers)) {
+            seatIds.put((String) row[1], ((Number) row[0]).longValue());
+        }
+        if (seatIds.size() != seatNumbers.size()) {
+            // Все или ничего: возвращаем места, которые успели занять
+            if (!seatIds.isEmpty()) {
+                seatRepository.releaseSeats(seatIds.values());
+            }
+            log.info("Seats {} on flight {} are not all available", seatNumbers, flightId);
+            return Optional.empty();
+        }
 
-            // Создаем платеж
-            PaymentEntity payment = paymentService.createPaymentIntent(booking);
-            booking.setPayment(payment);
+        LocalDateTime holdExpiresAt = LocalDateTime.now().plus(holdTtl);
+
+        BookingEntity lead = new BookingEntity(idGenerator.nextCode(BOOKING_NUMBER_PREFIX), user, flight,
+                seatRepository.getReferenceById(seatIds.get(seatNumbers.get(0))), passengerNames.get(0));
+        lead.setStatus(BookingStatus.PAYMENT_INITIALIZING);
+        lead.setHoldExpiresAt(holdExpiresAt);
+        lead = bookingRepository.save(lead);
+
+        List<BookingEntity> members = new ArrayList<>(seatNumbers.size() - 1);
+        for (int i = 1; i < seatNumbers.size(); i++) {
+            BookingEntity member = new BookingEntity(idGenerator.nextCode(BOOKING_NUMBER_PREFIX), user, flight,
+                    seatRepository.getReferenceById(seatIds.get(seatNumbers.get(i))), passengerNames.get(i));
+            member.setStatus(BookingStatus.PAYMENT_INITIALIZING);
+            member.setHoldExpiresAt(holdExpiresAt);
+            member.setGroupLead(lead);
+            members.add(member);
+        }
+        bookingRepository.batchInsert(members);
 
-            booking = bookingRepository.save(booking);
+        seatIds.values().forEach(seatId -> seatInventoryService.seatReserved(flightId, seatId));
 
-            log.info("Booking created successfully: {}", booking.getBookingNumber());
-            return booking;
+        BigDecimal totalAmount = flight.getPrice().multiply(BigDecimal.valueOf(seatNumbers.size()));
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(flightId, null, BookingStatus.PAYMENT_INITIALIZING,
+                seatNumbers.size(), totalAmount));
+        eventPublisher.publishEvent(new BookingCreatedEvent(lead.getId(), totalAmount));
 
-        } catch (Exception e) {
-            seat.release();
-            seatRepository.save(seat);
-            log.error("Failed to create booking", e);
-            throw new RuntimeException("Failed to create booking: " + e.getMessage());
+        log.info("Group booking created successfully: {} ({} seats)", lead.getBookingNumber(), seatNumbers.size());
+        return Optional.of(lead);
+    }
+
+    /**
+     * Переводит бронирование (вместе с участниками группы) в ожидание оплаты
+     * после создания платежного намерения
+     *
+     * @param bookingId идентификатор бронирования
+     * @return true если статус изменен, false если бронирование уже отменено
+     */
+    @Transactional
+    public boolean markPaymentReady(Long bookingId) {
+        if (bookingRepository.updateStatusIfCurrent(bookingId,
+                BookingStatus.PAYMENT_INITIALIZING, BookingStatus.PENDING_PAYMENT) == 0) {
+            return false;
         }
+        bookingRepository.updateGroupStatusIfCurrent(bookingId,
+                BookingStatus.PAYMENT_INITIALIZING, BookingStatus.PENDING_PAYMENT);
+        return true;
+    }
+
+    /**
+     * Отменяет бронирование (вместе с участниками группы), для которого
+     * не удалось создать платежное намерение, и освобождает места
+     *
+     * @param bookingId идентификатор бронирования
+     */
+    @Transactional
+    public void failPaymentInitialization(Long bookingId) {
+        if (bookingRepository.updateStatusIfCurrent(bookingId,
+                BookingStatus.PAYMENT_INITIALIZING, BookingStatus.CANCELLED) == 0) {
+            return;
+        }
+        bookingRepository.updateGroupStatusIfCurrent(bookingId,
+                BookingStatus.PAYMENT_INITIALIZING, BookingStatus.CANCELLED);
+
+        BookingEntity booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
+        for (BookingEntity groupBooking : getGroupBookings(booking)) {
+            releaseSeat(groupBooking);
+        }
+        log.warn("Booking {} cancelled: payment initialization failed", booking.getBookingNumber());
     }
 
     /**
@@ -92,8 +230,74 @@ public class BookingService {
             throw new RuntimeException("Cannot confirm unpaid booking");
         }
 
+        // Платеж ведущего бронирования оплачивает все места группы
+        List<BookingEntity> group = getGroupBookings(booking);
+
+        // Страница успешной оплаты и webhook подтверждают одно и то же бронирование:
+        // блокировка ведущего бронирования выстраивает их в очередь, а статусы
+        // перечитываются после нее, поэтому второй вызов видит группу подтвержденной
+        bookingRepository.lockById(group.get(0).getId());
+        List<BookingEntity> unconfirmed = new ArrayList<>();
+        for (BookingEntity groupBooking : group) {
+            BookingStatus status = bookingRepository.findStatusById(groupBooking.getId());
+            if (status == BookingStatus.CONFIRMED) {
+                continue;
+            }
+            reclaimExpiredSeat(groupBooking, status);
+            unconfirmed.add(groupBooking);
+        }
+        if (unconfirmed.isEmpty()) {
+            log.info("Booking {} is already confirmed", booking.getBookingNumber());
+            return booking;
+        }
+        for (BookingEntity groupBooking : unconfirmed) {
+            issueConfirmedBooking(groupBooking);
+        }
+
+        log.info("Booking confirmed: {}", booking.getBookingNumber());
+        return booking;
+    }
+
+    /**
+     * Освобождает место бронирования; учет мест обновляется, только если место было занято
+     */
+    private void releaseSeat(BookingEntity booking) {
+        if (seatRepository.releaseSeat(booking.getSeat().getId()) == 1) {
+            seatInventoryService.seatReleased(booking.getFlight().getId(), booking.getSeat().getId());
+        }
+    }
+
+    /**
+     * Публикует переход бронирования в новый статус для учета статистики
+     */
+    private void publishStatusChange(BookingEntity booking, BookingStatus newStatus) {
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(booking.getFlight().getId(),
+                booking.getStatus(), newStatus, 1, booking.getTotalPrice()));
+    }
+
+    /**
+     * Повторно занимает место, если оплата пришла после истечения срока удержания
+     */
+    private void reclaimExpiredSeat(BookingEntity booking, BookingStatus currentStatus) {
+        if (currentStatus != BookingStatus.CANCELLED) {
+            return;
+        }
+        if (seatRepository.reclaimSeat(booking.getSeat().getId()) == 0) {
+            throw new RuntimeException("Seat hold expired and the seat is no longer available");
+        }
+        seatInventoryService.seatReserved(booking.getFlight().getId(), booking.getSeat().getId());
+    }
+
+    /**
+     * Подтверждает оплаченное бронирование, выпускает билет и отправляет уведомление
+     */
+    private void issueConfirmedBooking(BookingEntity booking) {
+        // Статус меняется условным UPDATE: событие, билет и письмо - только если строка изменилась
+        if (bookingRepository.confirmIfNotConfirmed(booking.getId()) == 0) {
+            return;
+        }
+        publishStatusChange(booking, BookingStatus.CONFIRMED);
         booking.setStatus(BookingStatus.CONFIRMED);
-        booking = bookingRepository.save(booking);
 
         // Создаем билет
         TicketEntity ticket = ticketService.createTicket(booking);
@@ -104,9 +308,6 @@ public class BookingService {
         } catch (Exception e) {
             log.warn("Failed to send confirmation email: {}", e.getMessage());
         }
-
-        log.info("Booking confirmed: {}", booking.getBookingNumber());
-        return booking;
     }
 
     /**
@@ -136,33 +337,43 @@ public class BookingService {
             throw new RuntimeException("Booking cannot be cancelled in current status: " + booking.getStatus());
         }
 
+        // Группа оплачивается одним платежом, поэтому отменяется целиком
+        List<BookingEntity> group = getGroupBookings(booking);
+        BookingEntity lead = group.get(0);
+
         // Отменяем платеж если он не завершен
-        if (booking.getPayment() != null && !booking.isPaid()) {
+        if (lead.getPayment() != null && !lead.isPaid()) {
             try {
-                paymentService.cancelPayment(booking.getPayment().getStripePaymentIntentId());
+                paymentService.cancelPayment(lead.getPayment().getStripePaymentIntentId());
             } catch (Exception e) {
                 log.warn("Failed to cancel Stripe payment: {}", e.getMessage());
             }
         }
 
-        // Отменяем билет если есть
-        ticketService.getTicketByBooking(booking).ifPresent(ticket -> {
-            ticketService.cancelTicket(booking);
-        });
+        for (BookingEntity groupBooking : group) {
+            if (!groupBooking.canBeCancelled()) {
+                continue;
+            }
 
-        // Освобождаем место
-        booking.getSeat().release();
-        seatRepository.save(booking.getSeat());
+            // Отменяем билет если есть
+            ticketService.getTicketByBooking(groupBooking).ifPresent(ticket -> {
+                ticketService.cancelTicket(groupBooking);
+            });
 
-        // Обновляем статус бронирования
-        booking.setStatus(BookingStatus.CANCELLED);
-        bookingRepository.save(booking);
+            // Освобождаем место
+            releaseSeat(groupBooking);
 
-        // Отправляем уведомление
-        try {
-            notificationService.sendCancellationNotification(booking);
-        } catch (Exception e) {
-            log.warn("Failed to send cancellation notification: {}", e.getMessage());
+            // Обновляем статус бронирования
+            publishStatusChange(groupBooking, BookingStatus.CANCELLED);
+            groupBooking.setStatus(BookingStatus.CANCELLED);
+            bookingRepository.save(groupBooking);
+
+            // Отправляем уведомление
+            try {
+                notificationService.sendCancellationNotification(groupBooking);
+            } catch (Exception e) {
+                log.warn("Failed to send cancellation notification: {}", e.getMessage());
+            }
         }
 
         log.info("Booking cancelled: {}", booking.getBookingNumber());
@@ -182,35 +393,44 @@ public class BookingService {
             throw new RuntimeException("Cannot refund booking in current status");
         }
 
-        if (booking.getPayment() == null) {
+        // Возврат по единому платежу группы оформляется на всю группу
+        List<BookingEntity> group = getGroupBookings(booking);
+        BookingEntity lead = group.get(0);
+
+        if (lead.getPayment() == null) {
             throw new RuntimeException("No payment found for this booking");
         }
 
         try {
             // Создаем возврат в Stripe
             PaymentEntity refundedPayment = paymentService.createRefund(
-                    booking.getPayment().getStripePaymentIntentId()
+                    lead.getPayment().getStripePaymentIntentId()
             );
 
-            // Отменяем билет
-            BookingEntity finalBooking = booking;
-            ticketService.getTicketByBooking(booking).ifPresent(ticket -> {
-                ticketService.cancelTicket(finalBooking);
-            });
-
-            // Освобождаем место
-            booking.getSeat().release();
-            seatRepository.save(booking.getSeat());
-
-            // Обновляем статус
-            booking.setStatus(BookingStatus.REFUNDED);
-            booking = bookingRepository.save(booking);
-
-            // Отправляем уведомление
-            try {
-                notificationService.sendRefundNotification(booking);
-            } catch (Exception e) {
-                log.warn("Failed to send refund notification: {}", e.getMessage());
+            for (BookingEntity groupBooking : group) {
+                if (groupBooking.getStatus() == BookingStatus.REFUNDED) {
+                    continue;
+                }
+
+                // Отменяем билет
+                ticketService.getTicketByBooking(groupBooking).ifPresent(ticket -> {
+                    ticketService.cancelTicket(groupBooking);
+                });
+
+                // Освобождаем место
+                releaseSeat(groupBooking);
+
+                // Обновляем статус
+                publishStatusChange(groupBooking, BookingStatus.REFUNDED);
+                groupBooking.setStatus(BookingStatus.REFUNDED);
+                bookingRepository.save(groupBooking);
+
+                // Отправляем уведомление
+                try {
+                    notificationService.sendRefundNotification(groupBooking);
+                } catch (Exception e) {
+                    log.warn("Failed to send refund notification: {}", e.getMessage());
+                }
             }
 
             log.info("Refund processed successfully for booking: {}", booking.getBookingNumber());
@@ -222,27 +442,57 @@ public class BookingService {
         }
     }
 
+    /**
+     * Отмена пачки бронирований с истекшим сроком удержания места.
+     * Статусы бронирований и места обновляются двумя запросами на всю пачку.
+     *
+     * @param limit максимальное количество бронирований в пачке
+     * @return данные отмененных бронирований
+     */
+    @Transactional
+    public List<ExpiredHoldDTO> expireSeatHolds(int limit) {
+        List<ExpiredHoldDTO> expired = new ArrayList<>();
+        for (Object[] row : bookingRepository.cancelExpiredHolds(LocalDateTime.now(), limit)) {
+            expired.add(new ExpiredHoldDTO(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    (String) row[3]));
+        }
+        if (expired.isEmpty()) {
+            return expired;
+        }
+
+        Set<Long> released = new HashSet<>(
+                seatRepository.releaseSeats(expired.stream().map(ExpiredHoldDTO::getSeatId).toList()));
+        expired.stream()
+                .filter(hold -> released.contains(hold.getSeatId()))
+                .forEach(hold -> seatInventoryService.seatReleased(hold.getFlightId(), hold.getSeatId()));
+        return expired;
+    }
+
     /**
      * Проверка возможности возврата
      */
     public boolean canRefund(BookingEntity booking) {
+        BookingEntity lead = booking.getGroupLead() != null ? booking.getGroupLead() : booking;
         return booking.canBeRefunded() &&
-                paymentService.canRefund(booking.getPayment().getStripePaymentIntentId());
+                paymentService.canRefund(lead.getPayment().getStripePaymentIntentId());
     }
 
     /**
-     * Проверяет доступность места
+     * Возвращает все бронирования группы, начиная с ведущего.
+     * Для одиночного бронирования возвращает список из него самого.
+     *
+     * @param booking любое бронирование группы
+     * @return ведущее бронирование и участники группы
      */
-    private boolean isSeatAvailable(SeatEntity seat) {
-        if (!seat.isAvailableForBooking()) {
-            return false;
-        }
-
-        // Дополнительная проверка - нет ли активных бронирований для этого места
-        return !bookingRepository.existsBySeatIdAndStatusNotIn(
-                seat.getId(),
-                Arrays.asList(BookingStatus.CANCELLED, BookingStatus.REFUNDED)
-        );
+    public List<BookingEntity> getGroupBookings(BookingEntity booking) {
+        BookingEntity lead = booking.getGroupLead() != null ? booking.getGroupLead() : booking;
+        List<BookingEntity> group = new ArrayList<>();
+        group.add(lead);
+        group.addAll(bookingRepository.findByGroupLeadId(lead.getId()));
+        return group;
     }
 
     // Методы для получения данных
@@ -1,61 +1,115 @@
 package com.bogdan.aeroreserve.service.core;
 
+import com.bogdan.aeroreserve.dto.ConnectionSearchResultDTO;
+import com.bogdan.aeroreserve.dto.ExploreDestinationDTO;
+import com.bogdan.aeroreserve.dto.FareCalendarDayDTO;
+import com.bogdan.aeroreserve.dto.FlightDetailsDTO;
+import com.bogdan.aeroreserve.dto.FlightCursor;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.dto.SeatBlockDTO;
+import com.bogdan.aeroreserve.dto.SeatDTO;
 import com.bogdan.aeroreserve.entity.*;
 import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.enums.SeatClass;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
 import com.bogdan.aeroreserve.repository.FlightRepository;
 import com.bogdan.aeroreserve.repository.SeatRepository;
+import com.bogdan.aeroreserve.service.cache.CacheInvalidationBus;
+import com.bogdan.aeroreserve.service.cache.FlightPageCache;
+import com.bogdan.aeroreserve.service.generator.SeatMapGenerator;
+import com.bogdan.aeroreserve.service.inventory.SeatInventoryService;
+import com.bogdan.aeroreserve.service.inventory.SeatStreamService;
+import com.bogdan.aeroreserve.service.search.ConnectionSearchService;
+import com.bogdan.aeroreserve.service.search.ExploreIndex;
+import com.bogdan.aeroreserve.service.search.FareCalendarService;
+import com.bogdan.aeroreserve.service.search.FlightSearchIndex;
+import com.bogdan.aeroreserve.service.search.SearchKeyRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@CacheConfig(cacheNames = {"flights", "seats"})
+@CacheConfig(cacheNames = {"flights", "flightDetails"})
 public class FlightService {
     private final FlightRepository flightRepository;
     private final SeatRepository seatRepository;
     private final RouteService routeService;
     private final CityService cityService;
-
-
-    @Cacheable(value = "flights", key = "'all-' + #pageable.pageNumber + '-' + #pageable.pageSize + '-' + #pageable.sort")
+    private final SeatInventoryService seatInventoryService;
+    private final SeatMapGenerator seatMapGenerator;
+    private final SeatStreamService seatStreamService;
+    private final FlightSearchIndex flightSearchIndex;
+    private final ConnectionSearchService connectionSearchService;
+    private final FareCalendarService fareCalendarService;
+    private final ExploreIndex exploreIndex;
+    private final SearchKeyRecorder searchKeyRecorder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final FlightPageCache flightPageCache;
+
+    private static final int MAX_SEAT_SUGGESTIONS = 5;
+    private static final int MAX_FARE_CALENDAR_DAYS = 15;
+    private static final int MAX_EXPLORE_DESTINATIONS = 50;
+
+    // Позиция перед всеми рейсами для первой страницы поиска
+    private static final LocalDateTime KEYSET_ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+
+    // Страницы сущностей не кешируются: кеш хранит только неизменяемые снимки
     @Transactional(readOnly = true)
     public Page<FlightEntity> getAllFlights(Pageable pageable) {
         log.info("Loading all flights from database, page: {}, size: {}", pageable.getPageNumber(), pageable.getPageSize());
         return flightRepository.findAllWithDetails(pageable);
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "flights", key = "'detail-' + #flight.id"),
-            @CacheEvict(value = "flights", key = "'simple-' + #flight.id"),
-            @CacheEvict(value = "flights", allEntries = true)
-    })
+    // Запись flightDetails удаляет FlightDetailsCacheEvictor после фиксации транзакции
     @Transactional
     public FlightEntity updateFlight(FlightEntity flight) {
         log.info("Updating flight: {}", flight.getFlightNumber());
-        return flightRepository.save(flight);
+        // Состояние до изменения нужно, чтобы инвалидировать и прежние маршрут и день рейса
+        FlightSummaryDTO previous = flightRepository.findSummaryById(flight.getId()).orElse(null);
+        FlightEntity saved = flightRepository.save(flight);
+        eventPublisher.publishEvent(new FlightChangedEvent(saved.getId(), previous));
+        return saved;
     }
 
-    @Cacheable(value = "flights", key = "'search-' + #from + '-' + #to + '-' + #date + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+    // Поиск обслуживается in-memory индексом, до его построения - запросом к базе данных.
+    // Направления первых страниц поиска учитываются для прогрева кэша после запуска
     @Transactional(readOnly = true)
-    public Page<FlightEntity> searchFlights(String from, String to, LocalDate date, Pageable pageable) {
-        log.info("Searching flights from database: from={}, to={}, date={}, page={}, size={}",
-                from, to, date, pageable.getPageNumber(), pageable.getPageSize());
+    public FlightPageDTO searchFlights(String from, String to, LocalDate date, String pageToken, int size) {
+        FlightCursor cursor = FlightCursor.decode(pageToken).orElse(null);
+        if (cursor == null) {
+            searchKeyRecorder.record(from, to);
+        }
+        if (flightSearchIndex.isReady()) {
+            return flightSearchIndex.search(from, to, date, cursor, size);
+        }
+
+        log.info("Searching flights from database: from={}, to={}, date={}, size={}", from, to, date, size);
 
         // Нормализуем параметры
         String normalizedFrom = (from != null && !from.trim().isEmpty()) ? from.trim().toLowerCase() : null;
@@ -64,78 +118,127 @@ public class FlightService {
 
         // Если все параметры пустые, возвращаем все рейсы
         if (normalizedFrom == null && normalizedTo == null && normalizedDate == null) {
-            return getAllFlights(pageable);
+            return getFlightSummaries(pageToken, size);
         }
 
-        return flightRepository.findBySearchCriteria(normalizedFrom, normalizedTo, normalizedDate, pageable);
+        LocalDateTime start = normalizedDate != null ? normalizedDate.atStartOfDay() : null;
+        LocalDateTime end = normalizedDate != null ? normalizedDate.plusDays(1).atStartOfDay() : null;
+        Limit limit = Limit.of(size + 1);
+
+        List<FlightSummaryDTO> fetched;
+        if (cursor == null) {
+            fetched = flightRepository.findSummariesBySearchCriteriaAfter(normalizedFrom, normalizedTo, start, end,
+                    KEYSET_ORIGIN, 0L, limit);
+        } else if (cursor.isBackward()) {
+            fetched = reversed(flightRepository.findSummariesBySearchCriteriaBefore(normalizedFrom, normalizedTo,
+                    start, end, cursor.getDepartureTime(), cursor.getId(), limit));
+        } else {
+            fetched = flightRepository.findSummariesBySearchCriteriaAfter(normalizedFrom, normalizedTo, start, end,
+                    cursor.getDepartureTime(), cursor.getId(), limit);
+        }
+        return FlightPageDTO.of(fetched, size, cursor, null, false);
     }
 
-    // Кеширование рейса по ID с полными деталями
-    @Cacheable(value = "flights", key = "'detail-' + #id")
-    @Transactional(readOnly = true)
-    public Optional<FlightEntity> getFlightById(Long id) {
-        log.info("Loading flight details from database, id: {}", id);
-        return flightRepository.findByIdWithAllDetails(id);
+    // Маршруты с пересадками по графу in-memory индекса, без запросов к базе данных
+    public ConnectionSearchResultDTO searchConnections(String from, String to, LocalDate date) {
+        return connectionSearchService.search(from, to, date);
     }
 
-    // Кеширование простого рейса по ID (без деталей)
-    @Cacheable(value = "flights", key = "'simple-' + #id")
-    @Transactional(readOnly = true)
-    public Optional<FlightEntity> getSimpleFlightById(Long id) {
-        log.info("Loading simple flight from database, id: {}", id);
-        return flightRepository.findById(id);
+    // Календарь цен на дату ±days дней: недели направления берутся из кэша или одним запросом
+    public List<FareCalendarDayDTO> getFareCalendar(String from, String to, LocalDate date, int days) {
+        int window = Math.max(0, Math.min(days, MAX_FARE_CALENDAR_DAYS));
+        return fareCalendarService.getCalendar(from, to, date.minusDays(window), date.plusDays(window));
     }
 
+    // Направления из города за месяц по возрастанию минимальной цены из in-memory индекса
+    public List<ExploreDestinationDTO> exploreDestinations(String origin, YearMonth month, BigDecimal maxPrice) {
+        return exploreIndex.explore(origin, month, maxPrice, MAX_EXPLORE_DESTINATIONS);
+    }
 
+    // Сводки рейсов для списков: страница берется из кэша, а количество свободных мест
+    // накладывается из счетчиков таблицы flights одним запросом по первичному ключу,
+    // так как захват и освобождение мест не меняют версию кэшированных страниц
     @Transactional(readOnly = true)
-    public List<SeatEntity> getAvailableSeats(Long flightId) {
-        log.info("Loading available seats from database for flight: {}", flightId);
-        FlightEntity flight = flightRepository.findById(flightId)
-                .orElseThrow(() -> new RuntimeException("Flight not found"));
-        return seatRepository.findByFlightAndAvailableTrue(flight);
+    public FlightPageDTO getFlightSummaries(String pageToken, int size) {
+        FlightPageDTO page = flightPageCache.getPage(pageToken, size);
+        if (page.getFlights().isEmpty()) {
+            return page;
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : flightRepository.findAvailableSeatCounters(
+                page.getFlights().stream().map(FlightSummaryDTO::getId).toList())) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        List<FlightSummaryDTO> flights = page.getFlights().stream()
+                .map(flight -> flight.withAvailableSeats(counts.getOrDefault(flight.getId(), flight.getAvailableSeats())))
+                .toList();
+        return new FlightPageDTO(flights, page.getNextToken(), page.getPreviousToken(),
+                page.getTotalItems(), page.isTotalEstimated());
     }
 
+    private static List<FlightSummaryDTO> reversed(List<FlightSummaryDTO> flights) {
+        List<FlightSummaryDTO> result = new ArrayList<>(flights);
+        Collections.reverse(result);
+        return result;
+    }
 
+    // Кеширование снимка рейса по ID; ключи совпадают с FlightDetailsCacheLoader,
+    // который обновляет горячие записи в фоне. sync = true: при промахе значение
+    // загружает один запрос на ключ, остальные ждут его результата
+    @Cacheable(value = "flightDetails", sync = true, key = "'detail-' + #id")
     @Transactional(readOnly = true)
-    public Integer getAvailableSeatsCount(Long flightId) {
-        log.info("Counting available seats from database for flight: {}", flightId);
-        return seatRepository.countByFlightIdAndAvailableTrue(flightId);
+    public Optional<FlightDetailsDTO> getFlightById(Long id) {
+        log.info("Loading flight details from database, id: {}", id);
+        return flightRepository.findDetailsById(id);
     }
 
-    // Старые методы поиска (также кешируем)
-    @Cacheable(value = "flights", key = "'old-search-' + #from + '-' + #to + '-' + #date")
+    // Сущность рейса со связями для изменения и расчетов; не кешируется
     @Transactional(readOnly = true)
-    public List<FlightEntity> searchFlights(String from, String to, LocalDate date) {
-        log.info("Executing old search: from={}, to={}, date={}", from, to, date);
-        LocalDateTime start = date.atStartOfDay();
-        LocalDateTime end = date.plusDays(1).atStartOfDay();
+    public Optional<FlightEntity> getFlightEntityById(Long id) {
+        return flightRepository.findByIdWithAllDetails(id);
+    }
 
-        CityEntity departureCity = cityService.getCityByName(from)
-                .orElseThrow(() -> new RuntimeException("Departure city not found: " + from));
-        CityEntity arrivalCity = cityService.getCityByName(to)
-                .orElseThrow(() -> new RuntimeException("Arrival city not found: " + to));
+    // Простая сущность рейса (без деталей) для изменения; не кешируется
+    @Transactional(readOnly = true)
+    public Optional<FlightEntity> getSimpleFlightById(Long id) {
+        return flightRepository.findById(id);
+    }
 
-        RouteEntity route = routeService.getRouteByCities(departureCity, arrivalCity)
-                .orElseThrow(() -> new RuntimeException("Route not found between " + from + " and " + to));
 
-        return flightRepository.findByRouteAndDepartureTimeBetween(route, start, end);
+    // Свободные места отдаются из in-memory карты мест без загрузки сущностей
+    public List<SeatDTO> getAvailableSeats(Long flightId) {
+        return seatInventoryService.getAvailableSeats(flightId);
     }
 
-    @Cacheable(value = "flights", key = "'city-search-' + #from + '-' + #to + '-' + #date")
-    @Transactional(readOnly = true)
-    public List<FlightEntity> searchFlightsByCityNames(String from, String to, LocalDate date) {
-        log.info("Executing city name search: from={}, to={}, date={}", from, to, date);
-        LocalDateTime start = date.atStartOfDay();
-        LocalDateTime end = date.plusDays(1).atStartOfDay();
+    // Поток изменений карты мест рейса для открытых страниц рейса
+    public SseEmitter subscribeToSeatChanges(Long flightId) {
+        return seatStreamService.subscribe(flightId);
+    }
 
-        return flightRepository.findByRoute_DepartureCity_NameAndRoute_ArrivalCity_NameAndDepartureTimeBetween(
-                from, to, start, end);
+    // Варианты размещения группы на соседних местах одного ряда
+    public List<SeatBlockDTO> suggestAdjacentSeats(Long flightId, SeatClass seatClass, int partySize) {
+        return seatInventoryService.suggestAdjacentSeats(flightId, seatClass, partySize, MAX_SEAT_SUGGESTIONS);
+    }
+
+    public Integer getAvailableSeatsCount(Long flightId) {
+        return seatInventoryService.getAvailableCount(flightId);
+    }
+
+    // Для списков рейсов счетчики читаются из таблицы flights одним запросом по первичному ключу:
+    // страницы рейсов кешируются, а счетчики должны быть актуальными
+    public Map<Long, Integer> getAvailableSeatsCounts(Collection<FlightEntity> flights) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (flights.isEmpty()) {
+            return counts;
+        }
+        for (Object[] row : flightRepository.findAvailableSeatCounters(
+                flights.stream().map(FlightEntity::getId).toList())) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "flights", allEntries = true),
-            @CacheEvict(value = "seats", allEntries = true)
-    })
     @Transactional
     public FlightEntity createFlight(String flightNumber, RouteEntity route,
                                      LocalDateTime departureTime, LocalDateTime arrivalTime,
@@ -151,14 +254,16 @@ public class FlightService {
         flight.setAircraft(aircraft);
         flight.setAirline(airline);
         flight.setStatus(FlightStatus.SCHEDULED);
+        flight = flightRepository.save(flight);
+
+        // Карта мест создается одним запросом по компоновке самолета
+        int seatCount = seatRepository.insertSeats(flight.getId(), seatMapGenerator.generate(aircraft));
+        log.info("Created {} seats for flight {}", seatCount, flightNumber);
+        eventPublisher.publishEvent(new FlightChangedEvent(flight.getId(), null));
 
-        return flightRepository.save(flight);
+        return flight;
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "flights", allEntries = true),
-            @CacheEvict(value = "seats", allEntries = true)
-    })
     @Transactional
     public FlightEntity createFlightWithCities(String flightNumber, String departureCityName,
                                                String arrivalCityName, LocalDateTime departureTime,
@@ -185,19 +290,16 @@ public class FlightService {
         return createFlight(flightNumber, route, departureTime, arrivalTime, price, aircraft, airline);
     }
 
-    @CacheEvict(value = {"flights", "seats"}, allEntries = true)
+    @CacheEvict(value = {"flights", "flightDetails"}, allEntries = true)
     public void evictAllCaches() {
-        log.info("Evicting all flight and seat caches");
+        log.info("Evicting all flight caches");
+        cacheInvalidationBus.publishEvictAll();
     }
 
-    @Caching(evict = {
-            @CacheEvict(value = "flights", key = "'detail-' + #flightId"),
-            @CacheEvict(value = "flights", key = "'simple-' + #flightId"),
-            @CacheEvict(value = "seats", key = "'available-' + #flightId"),
-            @CacheEvict(value = "seats", key = "'count-' + #flightId")
-    })
+    @CacheEvict(value = "flightDetails", key = "'detail-' + #flightId")
     public void evictFlightCache(Long flightId) {
         log.info("Evicting cache for flight: {}", flightId);
+        cacheInvalidationBus.publishFlightEviction(flightId);
     }
 
     private Integer calculateDuration(LocalDateTime departure, LocalDateTime arrival) {
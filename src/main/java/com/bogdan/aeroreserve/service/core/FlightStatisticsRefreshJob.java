@@ -0,0 +1,122 @@
+package com.bogdan.aeroreserve.service.core;
+
+import com.bogdan.aeroreserve.dto.StatisticsRefreshProgressDTO;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Фоновый пересчет статистики всех рейсов.
+ * Рейсы перебираются пачками по возрастанию id; каждая пачка пересчитывается одним
+ * запросом (агрегат по бронированиям и INSERT ... ON CONFLICT), поэтому количество
+ * запросов равно количеству пачек, а не рейсов. Одновременно выполняется не больше
+ * одного пересчета; состояние доступно для отображения прогресса.
+ * Согласование пачки с приращениями по событиям выполняет FlightStatisticsService.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class FlightStatisticsRefreshJob {
+
+    private final FlightRepository flightRepository;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final AtomicReference<StatisticsRefreshProgressDTO> progress =
+            new AtomicReference<>(StatisticsRefreshProgressDTO.idle());
+
+    public FlightStatisticsRefreshJob(FlightRepository flightRepository,
+                                      @Value("${app.statistics.refresh-chunk-size:1000}") int chunkSize) {
+        this.flightRepository = flightRepository;
+        this.chunkSize = chunkSize;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает пересчет, если он еще не выполняется
+     *
+     * @param recalculator пересчет одной пачки рейсов
+     * @return состояние пересчета после запуска
+     */
+    public StatisticsRefreshProgressDTO start(ChunkRecalculator recalculator) {
+        StatisticsRefreshProgressDTO current = progress.get();
+        if (current.isRunning()) {
+            return current;
+        }
+        StatisticsRefreshProgressDTO started = new StatisticsRefreshProgressDTO(
+                true, 0, 0, LocalDateTime.now(), null, null);
+        if (!progress.compareAndSet(current, started)) {
+            return progress.get();
+        }
+        executor.execute(() -> run(started.getStartedAt(), recalculator));
+        return started;
+    }
+
+    /**
+     * Возвращает состояние последнего пересчета
+     */
+    public StatisticsRefreshProgressDTO getProgress() {
+        return progress.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(LocalDateTime startedAt, ChunkRecalculator recalculator) {
+        long total = 0;
+        long processed = 0;
+        try {
+            total = flightRepository.count();
+            progress.set(new StatisticsRefreshProgressDTO(true, 0, total, startedAt, null, null));
+
+            long lastFlightId = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> flightIds = recalculator.recalculate(lastFlightId, chunkSize);
+                if (flightIds.isEmpty()) {
+                    break;
+                }
+                processed += flightIds.size();
+                lastFlightId = flightIds.get(flightIds.size() - 1);
+                progress.set(new StatisticsRefreshProgressDTO(true, processed, Math.max(total, processed),
+                        startedAt, null, null));
+            }
+
+            progress.set(new StatisticsRefreshProgressDTO(false, processed, Math.max(total, processed),
+                    startedAt, LocalDateTime.now(), null));
+            log.info("Flight statistics refreshed for {} flights", processed);
+        } catch (RuntimeException e) {
+            log.error("Flight statistics refresh failed after {} flights", processed, e);
+            progress.set(new StatisticsRefreshProgressDTO(false, processed, total,
+                    startedAt, LocalDateTime.now(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Пересчет одной пачки рейсов
+     */
+    @FunctionalInterface
+    public interface ChunkRecalculator {
+
+        /**
+         * @param afterFlightId идентификатор последнего рейса предыдущей пачки (0 для первой)
+         * @param limit размер пачки
+         * @return идентификаторы рейсов пачки по возрастанию; пустой список, если рейсы закончились
+         */
+        List<Long> recalculate(long afterFlightId, int limit);
+    }
+}
@@ -1,55 +1,92 @@
 package com.bogdan.aeroreserve.service.core;
 
-import com.bogdan.aeroreserve.entity.BookingEntity;
+import com.bogdan.aeroreserve.dto.StatisticsRefreshProgressDTO;
 import com.bogdan.aeroreserve.entity.FlightEntity;
 import com.bogdan.aeroreserve.entity.FlightStatisticsEntity;
 import com.bogdan.aeroreserve.enums.BookingStatus;
+import com.bogdan.aeroreserve.event.BookingStatusChangedEvent;
 import com.bogdan.aeroreserve.repository.FlightStatisticsRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FlightStatisticsService {
     private final FlightStatisticsRepository statisticsRepository;
     private final FlightService flightService;
-    private final BookingService bookingService;
+    private final FlightStatisticsRefreshJob refreshJob;
+
+    // Накопленные приращения по рейсу с номером последнего учтенного события
+    private final Map<Long, PendingDelta> pendingDeltas = new ConcurrentHashMap<>();
+    private final AtomicLong eventSequence = new AtomicLong();
 
     public FlightStatisticsEntity getOrCreateStatistics(Long flightId) {
         return statisticsRepository.findByFlightId(flightId)
                 .orElseGet(() -> {
-                    FlightEntity flight = flightService.getFlightById(flightId)
+                    FlightEntity flight = flightService.getFlightEntityById(flightId)
                             .orElseThrow(() -> new RuntimeException("Flight not found"));
                     return statisticsRepository.save(new FlightStatisticsEntity(flight));
                 });
     }
 
-    public FlightStatisticsEntity updateStatistics(Long flightId) {
-        FlightStatisticsEntity stats = getOrCreateStatistics(flightId);
-        FlightEntity flight = flightService.getFlightById(flightId)
-                .orElseThrow(() -> new RuntimeException("Flight not found"));
-
-        // Получаем все брони для этого рейса
-        List<BookingEntity> bookings = bookingService.getBookingsByFlight(flight);
-
-        // Обновляем статистику
-        stats.setTotalBookings(bookings.size());
-        stats.setTotalPassengers((int) bookings.stream()
-                .filter(b -> b.getStatus() == BookingStatus.CONFIRMED)
-                .count());
-
-        // Рассчитываем заполненность
-        stats.calculateLoadFactor();
+    /**
+     * Учитывает изменение статуса бронирований рейса после фиксации транзакции.
+     * Изменение сводится к приращению счетчиков в памяти, поэтому стоимость
+     * не зависит от количества бронирований рейса; в базу данных приращения
+     * записываются периодически одним пакетом.
+     *
+     * @param event событие изменения статуса бронирований
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBookingStatusChanged(BookingStatusChangedEvent event) {
+        int bookings = event.getPreviousStatus() == null ? event.getBookings() : 0;
+        int passengers = event.getBookings()
+                * (passengerWeight(event.getNewStatus()) - passengerWeight(event.getPreviousStatus()));
+        if (bookings != 0 || passengers != 0) {
+            addDelta(event.getFlightId(), bookings, passengers);
+        }
+    }
 
-        // Обновляем время
-        stats.setLastUpdated(java.time.LocalDateTime.now());
+    /**
+     * Записывает накопленные приращения статистики в базу данных
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.flush-interval:PT5S}")
+    @PreDestroy
+    @Transactional
+    public synchronized void flushStatistics() {
+        Map<Long, int[]> deltas = new HashMap<>();
+        for (Long flightId : pendingDeltas.keySet()) {
+            PendingDelta pending = pendingDeltas.remove(flightId);
+            if (pending != null) {
+                deltas.put(flightId, new int[]{pending.bookings(), pending.passengers()});
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
 
-        return statisticsRepository.save(stats);
+        try {
+            statisticsRepository.applyDeltas(deltas, LocalDateTime.now());
+            log.debug("Flushed statistics deltas for {} flights", deltas.size());
+        } catch (RuntimeException e) {
+            // Приращения возвращаются к накопленным и будут записаны следующей пачкой
+            log.warn("Failed to flush statistics for {} flights: {}", deltas.size(), e.getMessage());
+            deltas.forEach((flightId, delta) -> addDelta(flightId, delta[0], delta[1]));
+        }
     }
 
     public List<FlightStatisticsEntity> getAllStatistics() {
@@ -60,14 +97,58 @@ public class FlightStatisticsService {
         return statisticsRepository.findByOnTimePerformanceGreaterThanEqual(90.0);
     }
 
-    public void initializeStatisticsForAllFlights() {
-        Pageable pageable = PageRequest.of(0, 1000);
-        Page<FlightEntity> flightsPage = flightService.getAllFlights(pageable);
-        List<FlightEntity> flights = flightsPage.getContent();
+    /**
+     * Запускает фоновый пересчет статистики всех рейсов по бронированиям
+     *
+     * @return состояние пересчета
+     */
+    public StatisticsRefreshProgressDTO refreshAllStatistics() {
+        return refreshJob.start(this::recalculateChunk);
+    }
 
-        for (FlightEntity flight : flights) {
-            getOrCreateStatistics(flight.getId());
+    /**
+     * Пересчитывает статистику пачки рейсов по бронированиям.
+     * Приращения, зарегистрированные до начала запроса пересчета, относятся к уже
+     * зафиксированным бронированиям и учтены агрегатом, поэтому для рейсов пачки они
+     * отбрасываются. Результат приблизительный: событие регистрируется после фиксации
+     * своей транзакции, и бронирование, зафиксированное непосредственно перед запросом,
+     * но зарегистрированное после его начала, может быть учтено дважды до следующего пересчета.
+     *
+     * @param afterFlightId идентификатор последнего рейса предыдущей пачки
+     * @param limit размер пачки
+     * @return идентификаторы рейсов пачки
+     */
+    synchronized List<Long> recalculateChunk(long afterFlightId, int limit) {
+        flushStatistics();
+        long boundary = eventSequence.get();
+        List<Long> flightIds = statisticsRepository.recalculateChunk(afterFlightId, limit, LocalDateTime.now());
+        for (Long flightId : flightIds) {
+            pendingDeltas.computeIfPresent(flightId,
+                    (id, pending) -> pending.lastSequence() <= boundary ? null : pending);
         }
+        return flightIds;
     }
 
+    public StatisticsRefreshProgressDTO getRefreshProgress() {
+        return refreshJob.getProgress();
+    }
+
+    private void addDelta(Long flightId, int bookings, int passengers) {
+        pendingDeltas.merge(flightId, new PendingDelta(bookings, passengers, eventSequence.incrementAndGet()),
+                PendingDelta::plus);
+    }
+
+    // Приращение рейса: [бронирования, пассажиры] и номер последнего события, вошедшего в него
+    private record PendingDelta(int bookings, int passengers, long lastSequence) {
+
+        PendingDelta plus(PendingDelta other) {
+            return new PendingDelta(bookings + other.bookings, passengers + other.passengers,
+                    Math.max(lastSequence, other.lastSequence));
+        }
+    }
+
+    // Пассажиром считается подтвержденное бронирование
+    private static int passengerWeight(BookingStatus status) {
+        return status == BookingStatus.CONFIRMED ? 1 : 0;
+    }
 }
@@ -0,0 +1,54 @@
+package com.bogdan.aeroreserve.service.core;
+
+import com.bogdan.aeroreserve.dto.ExpiredHoldDTO;
+import com.bogdan.aeroreserve.service.payment.PaymentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Сервис освобождения мест по неоплаченным бронированиям.
+ * Периодически отменяет бронирования PENDING_PAYMENT с истекшим сроком удержания
+ * пачками по индексу и асинхронно отменяет их платежные намерения в Stripe.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatHoldExpiryService {
+
+    private final BookingService bookingService;
+    private final PaymentService paymentService;
+
+    @Value("${app.booking.hold-sweep-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Отменяет все истекшие удержания мест, обрабатывая их пачками
+     */
+    @Scheduled(fixedDelayString = "${app.booking.hold-sweep-interval:PT30S}")
+    public void releaseExpiredHolds() {
+        int total = 0;
+        List<ExpiredHoldDTO> batch;
+        do {
+            batch = bookingService.expireSeatHolds(batchSize);
+            // Stripe вызывается только после фиксации пачки и не держит соединение с БД
+            batch.stream()
+                    .map(ExpiredHoldDTO::getPaymentIntentId)
+                    .filter(Objects::nonNull)
+                    .forEach(paymentService::cancelPaymentAsync);
+            total += batch.size();
+        } while (batch.size() == batchSize);
+
+        if (total > 0) {
+            log.info("Released {} expired seat holds", total);
+        }
+    }
+}
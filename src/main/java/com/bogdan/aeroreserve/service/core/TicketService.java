@@ -3,6 +3,7 @@ package com.bogdan.aeroreserve.service.core;
 import com.bogdan.aeroreserve.entity.BookingEntity;
 import com.bogdan.aeroreserve.entity.TicketEntity;
 import com.bogdan.aeroreserve.repository.TicketRepository;
+import com.bogdan.aeroreserve.service.generator.IdGenerator;
 import com.bogdan.aeroreserve.service.generator.PdfTicketService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +19,9 @@ public class TicketService {
 
     private final TicketRepository ticketRepository;
     private final PdfTicketService pdfTicketService;
+    private final IdGenerator idGenerator;
+
+    private static final String TICKET_NUMBER_PREFIX = "TK";
 
     /**
      * Создание билета для подтвержденного бронирования
@@ -38,12 +42,11 @@ public class TicketService {
 
         // Создаем новый билет
         TicketEntity ticket = new TicketEntity();
+        ticket.setTicketNumber(idGenerator.nextCode(TICKET_NUMBER_PREFIX));
         ticket.setBooking(booking);
         ticket.setStatus("ISSUED");
         ticket.setBoardingTime(booking.getFlight().getDepartureTime().minusMinutes(45));
 
-        // Номер билета генерируется автоматически в @PrePersist методе
-
         log.info("Created new ticket for booking {} with ticket number: {}",
                 booking.getId(), ticket.getTicketNumber());
 
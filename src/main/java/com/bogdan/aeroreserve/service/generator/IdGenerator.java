@@ -0,0 +1,23 @@
+package com.bogdan.aeroreserve.service.generator;
+
+/**
+ * Интерфейс генератора уникальных идентификаторов.
+ * Используется для номеров бронирований и билетов.
+ */
+public interface IdGenerator {
+
+    /**
+     * Генерирует следующий уникальный числовой идентификатор.
+     *
+     * @return уникальный идентификатор
+     */
+    long nextId();
+
+    /**
+     * Генерирует следующий уникальный идентификатор в компактном текстовом виде.
+     *
+     * @param prefix префикс пространства номеров (например, "AR" или "TK")
+     * @return префикс и закодированный идентификатор
+     */
+    String nextCode(String prefix);
+}
@@ -0,0 +1,144 @@
+package com.bogdan.aeroreserve.service.generator;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * Номер узла генератора идентификаторов, уникальный среди работающих экземпляров приложения.
+ * Если номер задан явно (NODE_ID), используется он: уникальность обеспечивает развертывание.
+ * Иначе при запуске арендуется свободный номер в таблице id_generator_nodes; аренда продлевается
+ * по расписанию, а номер, аренда которого истекла, может занять другой экземпляр. Если свободных
+ * номеров нет, запуск завершается ошибкой, а не продолжается с номером, который уже используется.
+ * При потере аренды (например, после долгой паузы или недоступности базы данных)
+ * арендуется новый номер, о чем уведомляется генератор.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class NodeIdLease {
+
+    static final int MAX_NODE_ID = 1023;
+
+    // Первый номер, который свободен или аренда которого истекла; при гонке двух экземпляров
+    // за один номер условие ON CONFLICT пропускает вставку проигравшего, и он повторяет попытку
+    private static final String ACQUIRE_SQL = """
+            WITH candidate AS (
+                SELECT n.node_id
+                FROM generate_series(0, ?) AS n(node_id)
+                LEFT JOIN id_generator_nodes g ON g.node_id = n.node_id
+                WHERE g.node_id IS NULL OR g.heartbeat_at < now() - make_interval(secs => ?)
+                ORDER BY n.node_id
+                LIMIT 1
+            )
+            INSERT INTO id_generator_nodes (node_id, owner, heartbeat_at)
+            SELECT node_id, ?, now() FROM candidate
+            ON CONFLICT (node_id) DO UPDATE
+            SET owner = EXCLUDED.owner,
+                heartbeat_at = EXCLUDED.heartbeat_at
+            WHERE id_generator_nodes.heartbeat_at < now() - make_interval(secs => ?)
+            RETURNING node_id
+            """;
+
+    private static final String RENEW_SQL =
+            "UPDATE id_generator_nodes SET heartbeat_at = now() WHERE node_id = ? AND owner = ?";
+
+    private static final String RELEASE_SQL = "DELETE FROM id_generator_nodes WHERE node_id = ? AND owner = ?";
+
+    private static final int ACQUIRE_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Long configuredNodeId;
+    private final long ttlSeconds;
+    private final String owner;
+    private volatile long nodeId = -1;
+    private volatile LongConsumer reassignmentListener = id -> { };
+
+    public NodeIdLease(JdbcTemplate jdbcTemplate,
+                       @Value("${app.ids.node-id:#{null}}") Long configuredNodeId,
+                       @Value("${app.ids.lease-ttl:PT2M}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.configuredNodeId = configuredNodeId;
+        this.ttlSeconds = ttl.toSeconds();
+        this.owner = hostName() + "/" + UUID.randomUUID();
+    }
+
+    /**
+     * Возвращает номер узла, при первом обращении арендуя его
+     *
+     * @param listener уведомление о смене номера после потери аренды
+     * @return номер узла
+     */
+    public synchronized long acquire(LongConsumer listener) {
+        this.reassignmentListener = listener;
+        if (nodeId < 0) {
+            nodeId = configuredNodeId != null ? configuredNodeId : lease();
+            log.info("Id generator node id: {} ({})", nodeId, configuredNodeId != null ? "configured" : "leased");
+        }
+        return nodeId;
+    }
+
+    /**
+     * Продлевает аренду номера; если аренда потеряна, арендует новый номер
+     */
+    @Scheduled(fixedDelayString = "${app.ids.lease-heartbeat:PT30S}")
+    public synchronized void renew() {
+        if (configuredNodeId != null || nodeId < 0) {
+            return;
+        }
+        try {
+            if (jdbcTemplate.update(RENEW_SQL, (int) nodeId, owner) == 0) {
+                long previous = nodeId;
+                nodeId = lease();
+                log.warn("Id generator node lease {} was lost, switched to node id {}", previous, nodeId);
+                reassignmentListener.accept(nodeId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to renew id generator node lease {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        if (configuredNodeId != null || nodeId < 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_SQL, (int) nodeId, owner);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release id generator node lease {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private long lease() {
+        for (int attempt = 0; attempt < ACQUIRE_ATTEMPTS; attempt++) {
+            List<Integer> leased = jdbcTemplate.queryForList(ACQUIRE_SQL, Integer.class,
+                    MAX_NODE_ID, ttlSeconds, owner, ttlSeconds);
+            if (!leased.isEmpty()) {
+                return leased.get(0);
+            }
+        }
+        throw new IllegalStateException("No free id generator node id: all " + (MAX_NODE_ID + 1)
+                + " node ids are leased by running instances");
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.bogdan.aeroreserve.service.generator;
+
+import com.bogdan.aeroreserve.dto.SeatDTO;
+import com.bogdan.aeroreserve.entity.AircraftEntity;
+import com.bogdan.aeroreserve.enums.SeatClass;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Генератор карты мест рейса по компоновке самолета.
+ * Места нумеруются так же, как в миграции V6: сквозные номера рядов от первого класса
+ * к эконому и буквы без I и O. Количество мест в ряду определяется классом
+ * и вместимостью самолета, последний ряд класса может быть неполным.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+public class SeatMapGenerator {
+
+    private static final char[] SEAT_LETTERS = "ABCDEFGHJKLM".toCharArray();
+
+    /**
+     * Строит список мест для самолета
+     *
+     * @param aircraft самолет с количеством мест по классам
+     * @return места в порядке рядов (идентификаторы не заполнены)
+     */
+    public List<SeatDTO> generate(AircraftEntity aircraft) {
+        List<SeatDTO> seats = new ArrayList<>(aircraft.getFirstClassSeats()
+                + aircraft.getBusinessSeats() + aircraft.getEconomySeats());
+        int economyPerRow = economySeatsPerRow(aircraft.getTotalSeats());
+
+        int row = addClassSeats(seats, SeatClass.FIRST, aircraft.getFirstClassSeats(), 4, 1);
+        row = addClassSeats(seats, SeatClass.BUSINESS, aircraft.getBusinessSeats(), Math.min(6, economyPerRow), row);
+        addClassSeats(seats, SeatClass.ECONOMY, aircraft.getEconomySeats(), economyPerRow, row);
+        return seats;
+    }
+
+    /**
+     * Добавляет места одного класса
+     *
+     * @return номер первого ряда следующего класса
+     */
+    private int addClassSeats(List<SeatDTO> seats, SeatClass seatClass, int count, int perRow, int firstRow) {
+        int row = firstRow;
+        for (int i = 0; i < count; i++) {
+            int column = i % perRow;
+            row = firstRow + i / perRow;
+            seats.add(new SeatDTO(null, null, row + String.valueOf(SEAT_LETTERS[column]), seatClass, true));
+        }
+        return count > 0 ? row + 1 : firstRow;
+    }
+
+    /**
+     * Возвращает размеры групп мест между проходами для ряда заданной ширины:
+     * компоновки 2-2, 3-3, 2-3-2, 2-4-2, 3-3-3, 3-4-3 и т.д. Используется и для мест из миграции V6,
+     * буквы которых идут по ряду слева направо так же, как здесь.
+     *
+     * @param seatsPerRow количество мест в полном ряду
+     * @return размеры групп мест слева направо
+     */
+    public static int[] seatGroups(int seatsPerRow) {
+        return switch (seatsPerRow) {
+            case 0, 1, 2, 3 -> new int[]{seatsPerRow};
+            case 4 -> new int[]{2, 2};
+            case 5 -> new int[]{2, 3};
+            case 6 -> new int[]{3, 3};
+            case 7 -> new int[]{2, 3, 2};
+            case 8 -> new int[]{2, 4, 2};
+            case 9 -> new int[]{3, 3, 3};
+            case 10 -> new int[]{3, 4, 3};
+            default -> new int[]{seatsPerRow / 4, seatsPerRow - 2 * (seatsPerRow / 4), seatsPerRow / 4};
+        };
+    }
+
+    // Широкофюзеляжные самолеты - 9-10 мест в ряду, узкофюзеляжные - 6, региональные - 4
+    private int economySeatsPerRow(int totalSeats) {
+        if (totalSeats >= 350) {
+            return 10;
+        }
+        if (totalSeats >= 250) {
+            return 9;
+        }
+        if (totalSeats >= 150) {
+            return 6;
+        }
+        return 4;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bogdan.aeroreserve.service.generator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор идентификаторов в стиле Snowflake.
+ * Идентификатор состоит из 41 бита времени в миллисекундах от собственной эпохи,
+ * 10 бит номера узла и 12 бит последовательности внутри миллисекунды.
+ * Генерация выполняется без блокировок через CAS одного AtomicLong.
+ * Уникальность между экземплярами приложения обеспечивается разными номерами узлов:
+ * номер задается явно или арендуется в базе данных (NodeIdLease).
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Component
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = NodeIdLease.MAX_NODE_ID;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Алфавит Crockford Base32: без I, L, O, U, чтобы номера было удобно диктовать
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 13;
+
+    private volatile long nodeBits;
+
+    // Последнее выданное состояние: время << SEQUENCE_BITS | последовательность
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(NodeIdLease nodeIdLease) {
+        assignNode(nodeIdLease.acquire(this::assignNode));
+    }
+
+    public SnowflakeIdGenerator(long nodeId) {
+        assignNode(nodeId);
+    }
+
+    private void assignNode(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Генерирует следующий идентификатор.
+     * При переполнении последовательности или отставании системных часов
+     * значение занимается из следующей миллисекунды, поэтому поток никогда не ждет
+     * и идентификаторы узла строго возрастают.
+     *
+     * @return уникальный идентификатор
+     */
+    @Override
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long candidate = now << SEQUENCE_BITS;
+            next = candidate > current ? candidate : current + 1;
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Генерирует идентификатор в виде префикса и 13 символов Crockford Base32
+     *
+     * @param prefix префикс пространства номеров
+     * @return текстовый идентификатор фиксированной длины
+     */
+    @Override
+    public String nextCode(String prefix) {
+        long id = nextId();
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + CODE_LENGTH];
+        prefix.getChars(0, prefixLength, chars, 0);
+        for (int i = chars.length - 1; i >= prefixLength; i--) {
+            chars[i] = BASE32[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
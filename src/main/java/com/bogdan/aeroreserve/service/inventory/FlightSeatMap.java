@@ -0,0 +1,359 @@
+package com.bogdan.aeroreserve.service.inventory;
+
+import com.bogdan.aeroreserve.dto.SeatDTO;
+import com.bogdan.aeroreserve.enums.SeatClass;
+import com.bogdan.aeroreserve.service.generator.SeatMapGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Компактная карта мест одного рейса.
+ * Для каждого класса обслуживания хранится битовая карта свободных мест
+ * (один бит на место) и счетчик свободных мест.
+ * Изменения выполняются через CAS без блокировок.
+ */
+final class FlightSeatMap {
+
+    private static final SeatClass[] SEAT_CLASSES = SeatClass.values();
+
+    // Ряд места по числовому префиксу номера, затем буква
+    private static final Comparator<SeatDTO> SEAT_ORDER = Comparator
+            .comparingInt((SeatDTO seat) -> rowOf(seat.getSeatNumber()))
+            .thenComparing(SeatDTO::getSeatNumber);
+
+    private final Long flightId;
+    // Увеличивается при каждом изменении: сверка заменяет карту, только если она не менялась
+    private final AtomicLong version = new AtomicLong();
+    // Момент загрузки из базы данных (System.nanoTime) для перезагрузки по возрасту
+    private final long loadedAt = System.nanoTime();
+    private final ClassBitmap[] classes = new ClassBitmap[SEAT_CLASSES.length];
+
+    // Позиция места: старшие 32 бита - класс, младшие - индекс бита в карте класса
+    private final Map<Long, Long> positionBySeatId;
+    private final Map<String, Long> positionBySeatNumber;
+
+    /**
+     * Строит карту мест по состоянию из базы данных
+     *
+     * @param flightId идентификатор рейса
+     * @param seats места рейса в порядке рядов
+     */
+    FlightSeatMap(Long flightId, List<SeatDTO> seats) {
+        this.flightId = flightId;
+        this.positionBySeatId = new HashMap<>(seats.size() * 2);
+        this.positionBySeatNumber = new HashMap<>(seats.size() * 2);
+
+        List<List<SeatDTO>> byClass = new ArrayList<>(SEAT_CLASSES.length);
+        for (int i = 0; i < SEAT_CLASSES.length; i++) {
+            byClass.add(new ArrayList<>());
+        }
+        for (SeatDTO seat : seats) {
+            SeatClass seatClass = seat.getSeatClass() != null ? seat.getSeatClass() : SeatClass.ECONOMY;
+            byClass.get(seatClass.ordinal()).add(seat);
+        }
+
+        for (int c = 0; c < SEAT_CLASSES.length; c++) {
+            List<SeatDTO> classSeats = byClass.get(c);
+            // Места одного ряда идут подряд по буквам: соседние места - соседние биты
+            classSeats.sort(SEAT_ORDER);
+            ClassBitmap bitmap = new ClassBitmap(classSeats.size());
+            List<Integer> rowStarts = new ArrayList<>();
+            int previousRow = -1;
+            int rowWidth = 0;
+            for (int i = 0; i < classSeats.size(); i++) {
+                SeatDTO seat = classSeats.get(i);
+                int row = rowOf(seat.getSeatNumber());
+                if (i == 0 || row != previousRow) {
+                    rowStarts.add(i);
+                    previousRow = row;
+                }
+                rowWidth = Math.max(rowWidth, i - rowStarts.get(rowStarts.size() - 1) + 1);
+                bitmap.seatIds[i] = seat.getId();
+                bitmap.seatNumbers[i] = seat.getSeatNumber();
+                if (Boolean.TRUE.equals(seat.getAvailable())) {
+                    bitmap.bits.set(i >>> 6, bitmap.bits.get(i >>> 6) | (1L << i));
+                    bitmap.availableCount.incrementAndGet();
+                }
+                long position = ((long) c << 32) | i;
+                positionBySeatId.put(seat.getId(), position);
+                positionBySeatNumber.put(seat.getSeatNumber(), position);
+            }
+            rowStarts.add(classSeats.size());
+            bitmap.rowStarts = rowStarts.stream().mapToInt(Integer::intValue).toArray();
+            bitmap.aisles = aisleMask(rowWidth);
+            classes[c] = bitmap;
+        }
+    }
+
+    Long getFlightId() {
+        return flightId;
+    }
+
+    /**
+     * @return номер версии карты, меняется при каждой отметке места
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * @return момент загрузки карты из базы данных по System.nanoTime
+     */
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return общее количество свободных мест на рейсе
+     */
+    int availableCount() {
+        int total = 0;
+        for (ClassBitmap bitmap : classes) {
+            total += bitmap.availableCount.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param seatClass класс обслуживания
+     * @return количество свободных мест в классе
+     */
+    int availableCount(SeatClass seatClass) {
+        return classes[seatClass.ordinal()].availableCount.get();
+    }
+
+    /**
+     * Помечает место занятым
+     *
+     * @param seatId идентификатор места
+     * @return true если состояние изменилось
+     */
+    boolean markTaken(Long seatId) {
+        version.incrementAndGet();
+        Long position = positionBySeatId.get(seatId);
+        return position != null && classOf(position).update(indexOf(position), false);
+    }
+
+    /**
+     * Помечает место свободным
+     *
+     * @param seatId идентификатор места
+     * @return true если состояние изменилось
+     */
+    boolean markAvailable(Long seatId) {
+        version.incrementAndGet();
+        Long position = positionBySeatId.get(seatId);
+        return position != null && classOf(position).update(indexOf(position), true);
+    }
+
+    /**
+     * Проверяет, свободно ли место
+     *
+     * @param seatNumber номер места
+     * @return true если место существует и свободно
+     */
+    boolean isAvailable(String seatNumber) {
+        Long position = positionBySeatNumber.get(seatNumber);
+        return position != null && classOf(position).isSet(indexOf(position));
+    }
+
+    /**
+     * Возвращает свободные места рейса, перебирая только ненулевые биты
+     *
+     * @return список свободных мест по классам в порядке рядов
+     */
+    List<SeatDTO> availableSeats() {
+        List<SeatDTO> result = new ArrayList<>(availableCount());
+        for (int c = 0; c < SEAT_CLASSES.length; c++) {
+            ClassBitmap bitmap = classes[c];
+            for (int w = 0; w < bitmap.bits.length(); w++) {
+                long word = bitmap.bits.get(w);
+                while (word != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                    result.add(new SeatDTO(bitmap.seatIds[i], flightId, bitmap.seatNumbers[i],
+                            SEAT_CLASSES[c], true));
+                    word &= word - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Находит блоки из подряд идущих свободных мест в одном ряду без прохода между ними.
+     * Для каждого ряда берется его битовая маска, и начала блоков длины partySize
+     * вычисляются сдвигами и AND без перебора отдельных мест; места сразу за проходом
+     * (по компоновке SeatMapGenerator для ширины ряда класса) не продолжают блок.
+     * Блоки ранжируются по числу одиночных свободных мест, которые они оставляют в своей группе
+     * мест между проходами, затем по номеру ряда и позиции в ряду.
+     *
+     * @param seatClass класс обслуживания
+     * @param partySize количество мест в блоке
+     * @param limit максимальное количество блоков
+     * @return номера мест найденных блоков в порядке ранжирования
+     */
+    List<List<String>> findAdjacentBlocks(SeatClass seatClass, int partySize, int limit) {
+        ClassBitmap bitmap = classes[seatClass.ordinal()];
+        if (partySize <= 0 || partySize > Long.SIZE || bitmap.availableCount.get() < partySize) {
+            return List.of();
+        }
+
+        // Ключ кандидата: [одиночные места | индекс ряда | позиция в ряду]
+        long[] candidates = new long[16];
+        int count = 0;
+        int[] rowStarts = bitmap.rowStarts;
+        for (int r = 0; r + 1 < rowStarts.length; r++) {
+            int start = rowStarts[r];
+            int length = rowStarts[r + 1] - start;
+            if (length < partySize || length > Long.SIZE) {
+                continue;
+            }
+
+            long free = bitmap.extract(start, length);
+            // Свободные места, продолжающие блок от соседа слева (не через проход)
+            long joined = free & ~bitmap.aisles;
+            long blockStarts = free;
+            for (int j = 1; j < partySize && blockStarts != 0; j++) {
+                blockStarts &= joined >>> j;
+            }
+
+            while (blockStarts != 0) {
+                int offset = Long.numberOfTrailingZeros(blockStarts);
+                blockStarts &= blockStarts - 1;
+
+                long orphans = isOrphan(free, bitmap.aisles, length, offset - 1, -1)
+                        + isOrphan(free, bitmap.aisles, length, offset + partySize, 1);
+                if (count == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, count * 2);
+                }
+                candidates[count++] = (orphans << 48) | ((long) r << 16) | offset;
+            }
+        }
+
+        Arrays.sort(candidates, 0, count);
+        List<List<String>> blocks = new ArrayList<>(Math.min(count, limit));
+        for (int k = 0; k < count && blocks.size() < limit; k++) {
+            int row = (int) ((candidates[k] >>> 16) & 0xFFFFFFFFL);
+            int start = rowStarts[row] + (int) (candidates[k] & 0xFFFF);
+            blocks.add(Arrays.asList(Arrays.copyOfRange(bitmap.seatNumbers, start, start + partySize)));
+        }
+        return blocks;
+    }
+
+    /**
+     * @return 1 если место рядом с блоком свободно и не отделено от него проходом,
+     * а следующее за ним занято, вне ряда или за проходом
+     */
+    private static long isOrphan(long free, long aisles, int length, int index, int direction) {
+        if (index < 0 || index >= length || (free & (1L << index)) == 0
+                || acrossAisle(aisles, index, index - direction)) {
+            return 0;
+        }
+        int next = index + direction;
+        return next < 0 || next >= length || (free & (1L << next)) == 0
+                || acrossAisle(aisles, index, next) ? 1 : 0;
+    }
+
+    // Соседние места a и b разделены проходом, если правое из них отмечено в маске
+    private static boolean acrossAisle(long aisles, int a, int b) {
+        return (aisles & (1L << Math.max(a, b))) != 0;
+    }
+
+    /**
+     * Маска позиций в ряду, перед которыми проходит проход: бит k означает проход
+     * между местами k - 1 и k. Неполный ряд занимает первые позиции полного.
+     */
+    private static long aisleMask(int rowWidth) {
+        long mask = 0;
+        int position = 0;
+        for (int group : SeatMapGenerator.seatGroups(rowWidth)) {
+            if (position > 0 && position < Long.SIZE) {
+                mask |= 1L << position;
+            }
+            position += group;
+        }
+        return mask;
+    }
+
+    private static int rowOf(String seatNumber) {
+        int row = 0;
+        for (int i = 0; i < seatNumber.length() && Character.isDigit(seatNumber.charAt(i)); i++) {
+            row = row * 10 + (seatNumber.charAt(i) - '0');
+        }
+        return row;
+    }
+
+    private ClassBitmap classOf(long position) {
+        return classes[(int) (position >>> 32)];
+    }
+
+    private static int indexOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Битовая карта мест одного класса обслуживания
+     */
+    private static final class ClassBitmap {
+        private final Long[] seatIds;
+        private final String[] seatNumbers;
+        private final AtomicLongArray bits;
+        private final AtomicInteger availableCount = new AtomicInteger();
+        // Индексы начала рядов, последний элемент - размер карты
+        private int[] rowStarts;
+        // Позиции в ряду сразу за проходом (см. aisleMask)
+        private long aisles;
+
+        private ClassBitmap(int size) {
+            this.seatIds = new Long[size];
+            this.seatNumbers = new String[size];
+            this.bits = new AtomicLongArray((size + 63) >>> 6);
+        }
+
+        /**
+         * Читает length бит, начиная с позиции start, с учетом перехода через границу слова
+         */
+        private long extract(int start, int length) {
+            int word = start >>> 6;
+            int shift = start & 63;
+            long value = bits.get(word) >>> shift;
+            if (shift != 0 && Long.SIZE - shift < length) {
+                value |= bits.get(word + 1) << (Long.SIZE - shift);
+            }
+            return length == Long.SIZE ? value : value & ((1L << length) - 1);
+        }
+
+        private boolean isSet(int index) {
+            return (bits.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        private boolean update(int index, boolean available) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            while (true) {
+                long current = bits.get(word);
+                boolean set = (current & mask) != 0;
+                if (set == available) {
+                    return false;
+                }
+                long next = available ? current | mask : current & ~mask;
+                if (bits.compareAndSet(word, current, next)) {
+                    if (available) {
+                        availableCount.incrementAndGet();
+                    } else {
+                        availableCount.decrementAndGet();
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+}
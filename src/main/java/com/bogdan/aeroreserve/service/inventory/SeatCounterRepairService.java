@@ -0,0 +1,57 @@
+package com.bogdan.aeroreserve.service.inventory;
+
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Сервис проверки счетчиков свободных мест в таблице flights.
+ * Счетчики обновляются теми же запросами, что занимают и освобождают места,
+ * но ручные правки и прямые изменения таблицы seats могут их рассинхронизировать.
+ * Проверяются только предстоящие рейсы.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class SeatCounterRepairService {
+
+    private final FlightRepository flightRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SeatCounterRepairService(FlightRepository flightRepository, PlatformTransactionManager transactionManager) {
+        this.flightRepository = flightRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Находит расходящиеся счетчики запросом без блокировок и исправляет каждый рейс
+     * в отдельной короткой транзакции. Строка рейса блокируется перед пересчетом:
+     * бронирования, уже изменившие счетчики рейса, к этому моменту зафиксированы, а новые
+     * ждут блокировки. Пересчет выполняется следующим запросом с новым снимком, поэтому видит
+     * все зафиксированные изменения мест; ожидающие бронирования затем уменьшат исправленный
+     * счетчик относительно его нового значения. Бронирования других рейсов не ждут.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.counter-check-interval:PT10M}")
+    public void repairCounters() {
+        List<Long> mismatched = flightRepository.findFlightsWithMismatchedSeatCounters(LocalDateTime.now());
+        int repaired = 0;
+        for (Long flightId : mismatched) {
+            Integer updated = transactionTemplate.execute(status -> {
+                flightRepository.lockById(flightId);
+                return flightRepository.repairAvailableSeatCounters(flightId);
+            });
+            repaired += updated != null ? updated : 0;
+        }
+        if (repaired > 0) {
+            log.warn("Repaired available seat counters for {} flights", repaired);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.bogdan.aeroreserve.service.inventory;
+
+import com.bogdan.aeroreserve.dto.SeatBlockDTO;
+import com.bogdan.aeroreserve.dto.SeatDTO;
+import com.bogdan.aeroreserve.enums.SeatClass;
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.repository.SeatRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервис in-memory учета свободных мест.
+ * Хранит компактную битовую карту мест для каждого рейса, загружая ее из таблицы seats
+ * при первом обращении, обновляет ее при бронировании и освобождении мест
+ * и периодически сверяет с базой данных.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class SeatInventoryService {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final SeatRepository seatRepository;
+    private final FlightRepository flightRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoadingCache<Long, FlightSeatMap> seatMaps;
+    private final long maxAgeNanos;
+
+    public SeatInventoryService(SeatRepository seatRepository, FlightRepository flightRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.inventory.seat-map-max-age:PT10M}") Duration maxAge) {
+        this.seatRepository = seatRepository;
+        this.flightRepository = flightRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.seatMaps = Caffeine.newBuilder()
+                // Карты неактивных рейсов вытесняются из памяти
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .maximumSize(10_000)
+                .build(new SeatMapLoader());
+    }
+
+    /**
+     * Возвращает количество свободных мест на рейсе
+     *
+     * @param flightId идентификатор рейса
+     * @return количество свободных мест
+     */
+    public int getAvailableCount(Long flightId) {
+        return seatMaps.get(flightId).availableCount();
+    }
+
+    /**
+     * Возвращает количество свободных мест на рейсе в указанном классе
+     *
+     * @param flightId идентификатор рейса
+     * @param seatClass класс обслуживания
+     * @return количество свободных мест в классе
+     */
+    public int getAvailableCount(Long flightId, SeatClass seatClass) {
+        return seatMaps.get(flightId).availableCount(seatClass);
+    }
+
+    /**
+     * Возвращает количество свободных мест для набора рейсов.
+     * Отсутствующие в памяти рейсы загружаются одним запросом.
+     *
+     * @param flightIds идентификаторы рейсов
+     * @return количество свободных мест по идентификатору рейса
+     */
+    public Map<Long, Integer> getAvailableCounts(Collection<Long> flightIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        seatMaps.getAll(flightIds).forEach((flightId, seatMap) -> counts.put(flightId, seatMap.availableCount()));
+        return counts;
+    }
+
+    /**
+     * Возвращает список свободных мест рейса
+     *
+     * @param flightId идентификатор рейса
+     * @return свободные места по классам в порядке рядов
+     */
+    public List<SeatDTO> getAvailableSeats(Long flightId) {
+        return seatMaps.get(flightId).availableSeats();
+    }
+
+    /**
+     * Проверяет, свободно ли место на рейсе
+     *
+     * @param flightId идентификатор рейса
+     * @param seatNumber номер места
+     * @return true если место существует и свободно
+     */
+    public boolean isAvailable(Long flightId, String seatNumber) {
+        return seatMaps.get(flightId).isAvailable(seatNumber);
+    }
+
+    /**
+     * Подбирает блоки соседних свободных мест в одном ряду для группы.
+     * Результат - снимок текущего состояния: места повторно проверяются
+     * условным UPDATE при групповом бронировании.
+     *
+     * @param flightId идентификатор рейса
+     * @param seatClass класс обслуживания
+     * @param partySize количество пассажиров
+     * @param limit максимальное количество вариантов
+     * @return варианты размещения, лучшие первыми
+     */
+    public List<SeatBlockDTO> suggestAdjacentSeats(Long flightId, SeatClass seatClass, int partySize, int limit) {
+        return seatMaps.get(flightId).findAdjacentBlocks(seatClass, partySize, limit).stream()
+                .map(seatNumbers -> new SeatBlockDTO(seatClass, seatNumbers))
+                .toList();
+    }
+
+    /**
+     * Отмечает место занятым после фиксации текущей транзакции
+     * и публикует событие изменения доступности места
+     *
+     * @param flightId идентификатор рейса
+     * @param seatId идентификатор места
+     */
+    public void seatReserved(Long flightId, Long seatId) {
+        afterCommit(() -> {
+            seatMaps.asMap().computeIfPresent(flightId, (id, seatMap) -> {
+                seatMap.markTaken(seatId);
+                return seatMap;
+            });
+            eventPublisher.publishEvent(new SeatAvailabilityChangedEvent(flightId, seatId, false));
+        });
+    }
+
+    /**
+     * Отмечает место свободным после фиксации текущей транзакции
+     * и публикует событие изменения доступности места
+     *
+     * @param flightId идентификатор рейса
+     * @param seatId идентификатор места
+     */
+    public void seatReleased(Long flightId, Long seatId) {
+        afterCommit(() -> {
+            seatMaps.asMap().computeIfPresent(flightId, (id, seatMap) -> {
+                seatMap.markAvailable(seatId);
+                return seatMap;
+            });
+            eventPublisher.publishEvent(new SeatAvailabilityChangedEvent(flightId, seatId, true));
+        });
+    }
+
+    /**
+     * Сбрасывает карту мест рейса, следующий запрос загрузит ее заново
+     *
+     * @param flightId идентификатор рейса
+     */
+    public void invalidate(Long flightId) {
+        seatMaps.invalidate(flightId);
+    }
+
+    /**
+     * Периодическая сверка загруженных карт мест с базой данных.
+     * Исправляет расхождения, возникшие из-за изменений в обход сервиса
+     * (триггеры, ручные правки, другие экземпляры приложения).
+     * Счетчики свободных мест карт сравниваются со счетчиками рейсов в таблице flights
+     * (одна строка на рейс), и из таблицы seats перезагружаются только рейсы с расхождением.
+     * Карта может разойтись с базой и при совпадающих счетчиках (на другом узле заняли одно
+     * место и освободили другое), а активный рейс не вытесняется по времени доступа,
+     * поэтому карты старше app.inventory.seat-map-max-age перезагружаются в любом случае.
+     * Новая карта заменяет текущую, только если та не менялась с начала загрузки: отметки мест,
+     * примененные во время загрузки, не теряются, а рейс будет сверен повторно.
+     * Отметки выполняются внутри computeIfPresent той же записи, поэтому не могут
+     * попасть в уже замененную карту.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.reconcile-interval:PT1M}")
+    public void reconcile() {
+        List<Long> flightIds = new ArrayList<>(seatMaps.asMap().keySet());
+        if (flightIds.isEmpty()) {
+            return;
+        }
+
+        int reloaded = 0;
+        for (int from = 0; from < flightIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = flightIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, flightIds.size()));
+            Map<Long, FlightSeatMap> mismatched = findMismatched(batch);
+            if (mismatched.isEmpty()) {
+                continue;
+            }
+
+            // Версии фиксируются до чтения мест: отметка после этого момента отменяет замену
+            Map<Long, Long> versions = new HashMap<>();
+            mismatched.forEach((flightId, seatMap) -> versions.put(flightId, seatMap.version()));
+            Map<Long, FlightSeatMap> loaded = loadSeatMaps(mismatched.keySet());
+
+            for (Map.Entry<Long, FlightSeatMap> entry : loaded.entrySet()) {
+                Long flightId = entry.getKey();
+                FlightSeatMap expected = mismatched.get(flightId);
+                long expectedVersion = versions.get(flightId);
+                FlightSeatMap result = seatMaps.asMap().computeIfPresent(flightId, (id, current) ->
+                        current == expected && current.version() == expectedVersion ? entry.getValue() : current);
+                if (result == entry.getValue()) {
+                    reloaded++;
+                }
+            }
+        }
+        log.debug("Reconciled seat inventory for {} flights, reloaded {}", flightIds.size(), reloaded);
+    }
+
+    // Карты мест, счетчики которых расходятся со счетчиками рейсов в таблице flights, и устаревшие карты
+    private Map<Long, FlightSeatMap> findMismatched(List<Long> flightIds) {
+        Map<Long, FlightSeatMap> mismatched = new HashMap<>();
+        long now = System.nanoTime();
+        for (Object[] row : flightRepository.findAvailableSeatCountersByClass(flightIds)) {
+            Long flightId = (Long) row[0];
+            FlightSeatMap seatMap = seatMaps.getIfPresent(flightId);
+            if (seatMap == null) {
+                continue;
+            }
+            if (now - seatMap.loadedAt() >= maxAgeNanos
+                    || seatMap.availableCount(SeatClass.ECONOMY) != ((Number) row[1]).intValue()
+                    || seatMap.availableCount(SeatClass.BUSINESS) != ((Number) row[2]).intValue()
+                    || seatMap.availableCount(SeatClass.FIRST) != ((Number) row[3]).intValue()) {
+                mismatched.put(flightId, seatMap);
+            }
+        }
+        return mismatched;
+    }
+
+    private Map<Long, FlightSeatMap> loadSeatMaps(Collection<? extends Long> flightIds) {
+        Map<Long, List<SeatDTO>> seatsByFlight = new HashMap<>();
+        for (Long flightId : flightIds) {
+            seatsByFlight.put(flightId, new ArrayList<>());
+        }
+        for (SeatDTO seat : seatRepository.findSeatStatesByFlightIds(seatsByFlight.keySet())) {
+            seatsByFlight.get(seat.getFlightId()).add(seat);
+        }
+
+        Map<Long, FlightSeatMap> seatMaps = new HashMap<>();
+        seatsByFlight.forEach((flightId, seats) -> seatMaps.put(flightId, new FlightSeatMap(flightId, seats)));
+        return seatMaps;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Загрузчик карт мест: одиночные и пакетные промахи кэша
+     * обслуживаются одним запросом к таблице seats
+     */
+    private class SeatMapLoader implements CacheLoader<Long, FlightSeatMap> {
+
+        @Override
+        public FlightSeatMap load(Long flightId) {
+            return loadSeatMaps(List.of(flightId)).get(flightId);
+        }
+
+        @Override
+        public Map<Long, FlightSeatMap> loadAll(Set<? extends Long> flightIds) {
+            return loadSeatMaps(flightIds);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.bogdan.aeroreserve.service.inventory;
+
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис потоковой передачи изменений карты мест рейса через Server-Sent Events.
+ * Изменения мест накапливаются по рейсу и сворачиваются до последнего состояния
+ * каждого места; раз в интервал для рейса один раз формируется дельта, которая
+ * раздается всем подписчикам. Изменения, выполненные на других узлах, приходят через
+ * CacheInvalidationBus как удаленные события и рассылаются так же. У каждого подписчика ограниченная очередь: медленный
+ * клиент при переполнении получает событие resync и перезагружает карту мест целиком.
+ * Простаивающим подписчикам периодически отправляется комментарий-пульс: соединения,
+ * оборванные за прокси, обнаруживаются ошибкой записи, а не по истечении таймаута.
+ * Запись в сокет блокирующая, поэтому каждый подписчик отправляет события в своей задаче
+ * пула без ограничения числа потоков (потоки переиспользуются), а подписчик, запись
+ * которому длится дольше write-timeout, отключается: зависший клиент занимает только
+ * свой поток и не задерживает остальных.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class SeatStreamService {
+
+    private static final String RESYNC = "resync";
+    private static final String HEARTBEAT = "heartbeat";
+
+    private final Map<Long, FlightChannel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+
+    public SeatStreamService(@Value("${app.seat-stream.buffer-size:16}") int bufferSize,
+                             @Value("${app.seat-stream.timeout:PT30M}") Duration timeout,
+                             @Value("${app.seat-stream.write-timeout:PT5S}") Duration writeTimeout) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Подписывает клиента на изменения мест рейса
+     *
+     * @param flightId идентификатор рейса
+     * @return поток событий для клиента
+     */
+    public SseEmitter subscribe(Long flightId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(flightId, emitter);
+        // Подписчик добавляется под блокировкой записи карты: иначе параллельная отписка
+        // может удалить опустевший канал, и подписчик останется в канале, которому не рассылают
+        channels.compute(flightId, (id, channel) -> {
+            FlightChannel target = channel != null ? channel : new FlightChannel();
+            target.subscribers.add(subscriber);
+            return target;
+        });
+
+        Runnable unsubscribe = () -> unsubscribe(flightId, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Регистрирует изменение состояния места.
+     * Если за рейсом никто не следит, изменение отбрасывается.
+     *
+     * @param event событие изменения доступности места
+     */
+    @EventListener
+    public void onSeatAvailabilityChanged(SeatAvailabilityChangedEvent event) {
+        FlightChannel channel = channels.get(event.getFlightId());
+        if (channel != null) {
+            channel.pending.put(event.getSeatId(), event.isAvailable());
+        }
+    }
+
+    /**
+     * Рассылает накопленные изменения подписчикам
+     */
+    @Scheduled(fixedDelayString = "${app.seat-stream.flush-interval:PT0.5S}")
+    public void flush() {
+        channels.forEach((flightId, channel) -> {
+            if (channel.pending.isEmpty()) {
+                return;
+            }
+
+            StringBuilder taken = new StringBuilder();
+            StringBuilder released = new StringBuilder();
+            for (Long seatId : channel.pending.keySet()) {
+                Boolean available = channel.pending.remove(seatId);
+                if (available == null) {
+                    continue;
+                }
+                StringBuilder target = available ? released : taken;
+                if (!target.isEmpty()) {
+                    target.append(',');
+                }
+                target.append(seatId);
+            }
+
+            String payload = "{\"taken\":[" + taken + "],\"released\":[" + released + "]}";
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.offer(payload);
+            }
+        });
+    }
+
+    /**
+     * Отправляет пульс подписчикам, у которых нет неотправленных событий
+     */
+    @Scheduled(fixedDelayString = "${app.seat-stream.heartbeat-interval:PT20S}")
+    public void heartbeat() {
+        channels.values().forEach(channel -> channel.subscribers.forEach(Subscriber::heartbeat));
+    }
+
+    /**
+     * Отключает подписчиков, запись которым длится дольше write-timeout.
+     * Эмиттер завершается в потоке отправки после прерванной записи: его методы
+     * выполняются под одной блокировкой, и вызов отсюда ждал бы зависшую запись.
+     */
+    @Scheduled(fixedDelayString = "${app.seat-stream.write-timeout-check-interval:PT1S}")
+    public void closeStalledSubscribers() {
+        long now = System.nanoTime();
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> {
+            long started = subscriber.sendStartedAt;
+            Thread thread = subscriber.sendingThread;
+            if (started != 0 && thread != null && now - started > writeTimeoutNanos
+                    // Поток мог успеть перейти к другому подписчику
+                    && subscriber.sendingThread == thread && subscriber.sendStartedAt == started) {
+                log.debug("Seat stream subscriber of flight {} stalled, disconnecting", subscriber.flightId);
+                unsubscribe(subscriber.flightId, subscriber);
+                thread.interrupt();
+            }
+        }));
+    }
+
+    private void unsubscribe(Long flightId, Subscriber subscriber) {
+        subscriber.closed = true;
+        channels.computeIfPresent(flightId, (id, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(s -> s.emitter.complete()));
+        channels.clear();
+    }
+
+    /**
+     * Подписчики одного рейса и свернутые изменения мест, ожидающие отправки
+     */
+    private static final class FlightChannel {
+        private final Queue<Subscriber> subscribers = new ConcurrentLinkedQueue<>();
+        private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Подписчик с ограниченной очередью исходящих событий.
+     * Отправка выполняется пулом потоков, одновременно не более одной задачи на подписчика.
+     */
+    private final class Subscriber {
+        private final Long flightId;
+        private final SseEmitter emitter;
+        private final Queue<String> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Поток и начало текущей записи (System.nanoTime, 0 - запись не выполняется)
+        private volatile Thread sendingThread;
+        private volatile long sendStartedAt;
+
+        private Subscriber(Long flightId, SseEmitter emitter) {
+            this.flightId = flightId;
+            this.emitter = emitter;
+        }
+
+        private void offer(String payload) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(payload)) {
+                // Клиент не успевает: вместо устаревших дельт просим перезагрузить карту мест
+                queue.clear();
+                queue.offer(RESYNC);
+            }
+            schedule();
+        }
+
+        private void heartbeat() {
+            if (!closed && queue.isEmpty() && queue.offer(HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            // Прерывание, опоздавшее к предыдущей задаче потока, не относится к этому подписчику
+            Thread.interrupted();
+            sendingThread = Thread.currentThread();
+            try {
+                String payload;
+                while (!closed && (payload = queue.poll()) != null) {
+                    sendStartedAt = System.nanoTime();
+                    if (HEARTBEAT.equals(payload)) {
+                        emitter.send(SseEmitter.event().comment(HEARTBEAT));
+                    } else if (RESYNC.equals(payload)) {
+                        emitter.send(SseEmitter.event().name(RESYNC).data(RESYNC));
+                    } else {
+                        emitter.send(SseEmitter.event().name("seats").data(payload));
+                    }
+                    sendStartedAt = 0;
+                }
+                if (closed && Thread.interrupted()) {
+                    // Запись завершилась одновременно с отключением по таймауту
+                    emitter.complete();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Seat stream subscriber disconnected: {}", e.getMessage());
+                closed = true;
+                Thread.interrupted();
+                emitter.completeWithError(e);
+            } finally {
+                sendStartedAt = 0;
+                sendingThread = null;
+                draining.set(false);
+                if (!closed && !queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
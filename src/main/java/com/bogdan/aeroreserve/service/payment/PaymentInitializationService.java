@@ -0,0 +1,62 @@
+package com.bogdan.aeroreserve.service.payment;
+
+import com.bogdan.aeroreserve.entity.BookingEntity;
+import com.bogdan.aeroreserve.entity.PaymentEntity;
+import com.bogdan.aeroreserve.event.BookingCreatedEvent;
+import com.bogdan.aeroreserve.repository.BookingRepository;
+import com.bogdan.aeroreserve.service.core.BookingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Сервис асинхронной инициализации платежей.
+ * Создает платежное намерение в Stripe после фиксации транзакции бронирования,
+ * чтобы удаленный HTTP-вызов не удерживал соединение с БД и блокировки строк.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentInitializationService {
+
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final PaymentService paymentService;
+
+    /**
+     * Создает платежное намерение для нового бронирования
+     *
+     * @param event событие создания бронирования
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookingCreated(BookingCreatedEvent event) {
+        Long bookingId = event.getBookingId();
+        PaymentEntity payment = null;
+        try {
+            BookingEntity booking = bookingRepository.findByIdWithFlight(bookingId)
+                    .orElseThrow(() -> new RuntimeException("Booking not found: " + bookingId));
+
+            payment = paymentService.createPaymentIntent(booking, event.getAmount());
+
+            if (!bookingService.markPaymentReady(bookingId)) {
+                // Бронирование отменено, пока создавался платеж
+                log.info("Booking {} was cancelled during payment initialization", bookingId);
+                paymentService.cancelPaymentAsync(payment.getStripePaymentIntentId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize payment for booking: {}", bookingId, e);
+            if (payment != null) {
+                // Намерение уже создано в Stripe: без отмены оно осталось бы открытым
+                paymentService.cancelPaymentAsync(payment.getStripePaymentIntentId());
+            }
+            bookingService.failPaymentInitialization(bookingId);
+        }
+    }
+}
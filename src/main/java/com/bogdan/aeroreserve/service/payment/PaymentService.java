@@ -3,6 +3,8 @@ package com.bogdan.aeroreserve.service.payment;
 import com.bogdan.aeroreserve.entity.BookingEntity;
 import com.bogdan.aeroreserve.entity.PaymentEntity;
 
+import java.math.BigDecimal;
+
 /**
  * Интерфейс платежного сервиса для обработки операций, связанных с оплатой бронирований.
  * Включает функциональность для создания, подтверждения, проверки статуса,
@@ -16,7 +18,19 @@ public interface PaymentService {
      * @param booking объект бронирования, для которого создается платеж
      * @return сущность платежа с деталями созданного платежного намерения
      */
-    PaymentEntity createPaymentIntent(BookingEntity booking);
+    default PaymentEntity createPaymentIntent(BookingEntity booking) {
+        return createPaymentIntent(booking, booking.getTotalPrice());
+    }
+
+    /**
+     * Создает платежное намерение на указанную сумму.
+     * Используется для групповых бронирований, где один платеж покрывает все места.
+     *
+     * @param booking бронирование, к которому привязывается платеж
+     * @param amount сумма платежа
+     * @return сущность платежа с деталями созданного платежного намерения
+     */
+    PaymentEntity createPaymentIntent(BookingEntity booking, BigDecimal amount);
 
     /**
      * Подтверждает платеж по идентификатору платежного намерения.
@@ -58,4 +72,11 @@ public interface PaymentService {
      */
     PaymentEntity cancelPayment(String paymentIntentId);
 
-}
\ No newline at end of file
+    /**
+     * Асинхронно отменяет платеж. Ошибки отмены логируются и не пробрасываются.
+     *
+     * @param paymentIntentId идентификатор платежного намерения
+     */
+    void cancelPaymentAsync(String paymentIntentId);
+
+}
@@ -11,7 +11,9 @@ import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.RefundCreateParams;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -26,6 +28,7 @@ import java.util.Map;
  * @author Bogdan
  * @version 1.0
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StripePaymentService implements PaymentService {
@@ -56,13 +59,14 @@ public class StripePaymentService implements PaymentService {
      * Создание платежного намерения для бронирования
      *
      * @param booking данные бронирования
+     * @param amount сумма платежа
      * @return созданная сущность платежа
      * @throws RuntimeException если не удалось создать платежное намерение
      */
-    public PaymentEntity createPaymentIntent(BookingEntity booking) {
+    public PaymentEntity createPaymentIntent(BookingEntity booking, BigDecimal amount) {
         try {
             // Конвертируем сумму в центы (Stripe работает в минимальных единицах валюты)
-            long amountCents = booking.getTotalPrice()
+            long amountCents = amount
                     .multiply(BigDecimal.valueOf(100))
                     .longValue();
 
@@ -87,7 +91,7 @@ public class StripePaymentService implements PaymentService {
                     paymentIntent.getId(),
                     paymentIntent.getClientSecret()
             );
-            payment.setAmount(booking.getTotalPrice());
+            payment.setAmount(amount);
 
             return paymentRepository.save(payment);
 
@@ -214,4 +218,18 @@ public class StripePaymentService implements PaymentService {
             throw new RuntimeException("Failed to cancel payment: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Асинхронная отмена платежа, не блокирующая вызывающий поток
+     *
+     * @param paymentIntentId идентификатор платежного намерения
+     */
+    @Async
+    public void cancelPaymentAsync(String paymentIntentId) {
+        try {
+            cancelPayment(paymentIntentId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to cancel payment intent {}: {}", paymentIntentId, e.getMessage());
+        }
+    }
+}
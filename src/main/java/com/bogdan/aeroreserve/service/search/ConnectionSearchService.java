@@ -0,0 +1,220 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.ConnectionSearchResultDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.dto.ItineraryDTO;
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск маршрутов с одной и двумя пересадками.
+ * Граф строится по in-memory индексу поиска: вершины - города, ребра - рейсы,
+ * доступные только в момент своего вылета. Поиск идет раундами по числу рейсов
+ * (как RAPTOR): в каждом раунде метки городов расширяются рейсами, вылетающими
+ * в окне стыковки после прилета. Для каждого города хранится множество
+ * недоминируемых меток (время прилета, цена), поэтому один поиск дает и самые
+ * ранние, и самые дешевые маршруты. Количество просмотренных рейсов ограничено,
+ * чтобы поиск можно было выполнять прямо в запросе /search.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ConnectionSearchService {
+
+    // Прямой рейс и до двух пересадок
+    private static final int MAX_LEGS = 3;
+
+    private static final ConnectionSearchResultDTO NOTHING_FOUND =
+            new ConnectionSearchResultDTO(List.of(), List.of(), false);
+
+    private static final Comparator<ItineraryDTO> BY_ARRIVAL = Comparator
+            .comparing(ItineraryDTO::getArrivalTime)
+            .thenComparing(ItineraryDTO::getTotalPrice);
+
+    private static final Comparator<ItineraryDTO> BY_PRICE = Comparator
+            .comparing(ItineraryDTO::getTotalPrice)
+            .thenComparing(ItineraryDTO::getArrivalTime);
+
+    private final FlightSearchIndex flightSearchIndex;
+    private final Duration minConnection;
+    private final Duration maxConnection;
+    private final int expansionBudget;
+    private final int maxResults;
+
+    public ConnectionSearchService(FlightSearchIndex flightSearchIndex,
+                                   @Value("${app.search.connections.min-connection:PT45M}") Duration minConnection,
+                                   @Value("${app.search.connections.max-connection:PT12H}") Duration maxConnection,
+                                   @Value("${app.search.connections.expansion-budget:20000}") int expansionBudget,
+                                   @Value("${app.search.connections.max-results:5}") int maxResults) {
+        this.flightSearchIndex = flightSearchIndex;
+        this.minConnection = minConnection;
+        this.maxConnection = maxConnection;
+        this.expansionBudget = expansionBudget;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Ищет маршруты с пересадками, первый рейс которых вылетает в указанную дату.
+     * Города сопоставляются по подстроке названия, как в поиске прямых рейсов.
+     *
+     * @param from город вылета или его часть
+     * @param to город прилета или его часть
+     * @param date дата вылета первого рейса
+     * @return самые ранние и самые дешевые маршруты с одной или двумя пересадками
+     */
+    public ConnectionSearchResultDTO search(String from, String to, LocalDate date) {
+        String destination = normalize(to);
+        List<String> origins = flightSearchIndex.findOrigins(from);
+        if (!flightSearchIndex.isReady() || destination == null || date == null || origins.isEmpty()) {
+            return NOTHING_FOUND;
+        }
+
+        long started = System.nanoTime();
+        Set<String> originCities = new HashSet<>(origins);
+        Map<String, List<Label>> labelsByCity = new HashMap<>();
+        List<Label> arrived = new ArrayList<>();
+        List<Label> current = new ArrayList<>();
+        for (String origin : origins) {
+            current.add(new Label(origin, null, BigDecimal.ZERO, null, null));
+        }
+
+        int budget = expansionBudget;
+        boolean truncated = false;
+
+        rounds:
+        for (int legs = 1; legs <= MAX_LEGS && !current.isEmpty(); legs++) {
+            List<Label> next = new ArrayList<>();
+            for (Label label : current) {
+                LocalDateTime earliest = label.flight == null
+                        ? date.atStartOfDay() : label.arrival.plus(minConnection);
+                LocalDateTime latest = label.flight == null
+                        ? date.plusDays(1).atStartOfDay() : label.arrival.plus(maxConnection);
+
+                for (FlightSummaryDTO flight : flightSearchIndex.findDepartures(label.city, earliest, latest)) {
+                    if (--budget < 0) {
+                        truncated = true;
+                        break rounds;
+                    }
+                    if (!isBookable(flight)) {
+                        continue;
+                    }
+                    String city = flight.getArrivalCity().toLowerCase();
+                    if (originCities.contains(city) || label.visits(city)) {
+                        continue;
+                    }
+
+                    Label extended = label.extend(city, flight);
+                    if (!addIfNotDominated(labelsByCity, extended)) {
+                        continue;
+                    }
+                    if (city.contains(destination)) {
+                        // Прямые рейсы показываются основным поиском
+                        if (legs > 1) {
+                            arrived.add(extended);
+                        }
+                    } else if (legs < MAX_LEGS) {
+                        next.add(extended);
+                    }
+                }
+            }
+            current = next;
+        }
+
+        List<ItineraryDTO> itineraries = arrived.stream().map(Label::toItinerary).toList();
+        ConnectionSearchResultDTO result = new ConnectionSearchResultDTO(
+                itineraries.stream().sorted(BY_ARRIVAL).limit(maxResults).toList(),
+                itineraries.stream().sorted(BY_PRICE).limit(maxResults).toList(),
+                truncated);
+
+        log.debug("Connection search {} -> {} on {}: {} itineraries, {} flights scanned{} in {} ms",
+                from, to, date, itineraries.size(), expansionBudget - Math.max(budget, 0),
+                truncated ? " (budget exhausted)" : "", (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    // Метка добавляется, если ни одна метка города не прибывает раньше и не стоит дешевле одновременно.
+    // Раунды идут по возрастанию числа рейсов, поэтому существующие метки не хуже и по пересадкам.
+    // Метки, которые новая доминирует, исключаются из сравнения
+    private static boolean addIfNotDominated(Map<String, List<Label>> labelsByCity, Label candidate) {
+        List<Label> labels = labelsByCity.computeIfAbsent(candidate.city, city -> new ArrayList<>());
+        for (Label label : labels) {
+            if (!label.arrival.isAfter(candidate.arrival) && label.price.compareTo(candidate.price) <= 0) {
+                return false;
+            }
+        }
+        labels.removeIf(label -> !candidate.arrival.isAfter(label.arrival)
+                && candidate.price.compareTo(label.price) <= 0);
+        labels.add(candidate);
+        return true;
+    }
+
+    private static boolean isBookable(FlightSummaryDTO flight) {
+        return flight.getStatus() == FlightStatus.SCHEDULED
+                && flight.getArrivalTime() != null
+                && flight.getPrice() != null
+                && flight.getAvailableSeats() != null && flight.getAvailableSeats() > 0;
+    }
+
+    private static String normalize(String city) {
+        return city != null && !city.trim().isEmpty() ? city.trim().toLowerCase() : null;
+    }
+
+    /**
+     * Метка поиска: город, достигнутый цепочкой рейсов, с временем прилета и суммарной ценой
+     */
+    private static final class Label {
+
+        private final String city;
+        private final LocalDateTime arrival;
+        private final BigDecimal price;
+        private final FlightSummaryDTO flight;
+        private final Label previous;
+
+        private Label(String city, LocalDateTime arrival, BigDecimal price,
+                      FlightSummaryDTO flight, Label previous) {
+            this.city = city;
+            this.arrival = arrival;
+            this.price = price;
+            this.flight = flight;
+            this.previous = previous;
+        }
+
+        private Label extend(String arrivalCity, FlightSummaryDTO next) {
+            return new Label(arrivalCity, next.getArrivalTime(), price.add(next.getPrice()), next, this);
+        }
+
+        private boolean visits(String other) {
+            for (Label label = this; label != null; label = label.previous) {
+                if (label.city.equals(other)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private ItineraryDTO toItinerary() {
+            LinkedList<FlightSummaryDTO> legsInOrder = new LinkedList<>();
+            for (Label label = this; label.flight != null; label = label.previous) {
+                legsInOrder.addFirst(label.flight);
+            }
+            return new ItineraryDTO(List.copyOf(legsInOrder), price);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.ExploreDestinationDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс минимальных цен по (город вылета, город прилета, месяц) для поиска
+ * "куда можно улететь". Для каждой пары (город вылета, месяц) хранится готовый
+ * массив направлений, отсортированный по минимальной цене, поэтому запрос с
+ * ограничением цены - это двоичный поиск без обращения к базе данных.
+ * Индекс обновляется точечно при изменении рейса и при переходе рейса между
+ * состояниями "есть места" и "мест нет"; пересчитывается только затронутая ячейка.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExploreIndex {
+
+    private static final Comparator<ExploreDestinationDTO> BY_PRICE = Comparator
+            .comparing(ExploreDestinationDTO::getLowestPrice)
+            .thenComparing(ExploreDestinationDTO::getDestination);
+
+    private static final ExploreDestinationDTO[] EMPTY = new ExploreDestinationDTO[0];
+
+    private final FlightRepository flightRepository;
+
+    // Ячейки по направлениям для каждой пары (город вылета, месяц); изменяются только под блокировкой индекса
+    private final Map<OriginMonth, Map<String, Cell>> cells = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Опубликованные для чтения отсортированные массивы направлений
+    private final Map<OriginMonth, ExploreDestinationDTO[]> destinations = new ConcurrentHashMap<>();
+
+    /**
+     * Полностью перестраивает индекс по сводкам рейсов
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.search.index-rebuild-interval:PT15M}",
+            fixedDelayString = "${app.search.index-rebuild-interval:PT15M}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        // Прошедшие рейсы в индекс не попадают, поэтому и не читаются
+        LocalDateTime now = LocalDateTime.now();
+        List<FlightSummaryDTO> summaries = flightRepository.findSummariesDepartingFrom(now);
+
+        cells.clear();
+        entries.clear();
+        for (FlightSummaryDTO summary : summaries) {
+            if (isExplorable(summary, now)) {
+                Entry entry = new Entry(summary);
+                entries.put(entry.flightId, entry);
+                cellOf(entry).flights.put(entry.flightId, entry);
+            }
+        }
+
+        Map<OriginMonth, ExploreDestinationDTO[]> rebuilt = new HashMap<>();
+        cells.forEach((key, byDestination) -> rebuilt.put(key, sortedDestinations(byDestination)));
+        destinations.keySet().retainAll(rebuilt.keySet());
+        destinations.putAll(rebuilt);
+
+        log.info("Explore index rebuilt: {} flights in {} origin-months in {} ms",
+                entries.size(), cells.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Обновляет рейс в индексе после фиксации транзакции, изменившей рейс
+     *
+     * @param event событие изменения рейса
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        Long flightId = event.getFlightId();
+        FlightSummaryDTO summary = flightRepository.findSummaryById(flightId).orElse(null);
+        synchronized (this) {
+            removeEntry(flightId);
+            if (summary != null && isExplorable(summary, LocalDateTime.now())) {
+                Entry entry = new Entry(summary);
+                entries.put(flightId, entry);
+                cellOf(entry).flights.put(flightId, entry);
+                publish(entry.key);
+            }
+        }
+    }
+
+    /**
+     * Учитывает изменение количества свободных мест рейса.
+     * Ячейка пересчитывается только когда рейс распродан или снова появились места.
+     *
+     * @param event событие изменения доступности места
+     */
+    @EventListener
+    public synchronized void onSeatAvailabilityChanged(SeatAvailabilityChangedEvent event) {
+        Entry entry = entries.get(event.getFlightId());
+        if (entry == null) {
+            return;
+        }
+        boolean wasAvailable = entry.availableSeats > 0;
+        entry.availableSeats += event.isAvailable() ? 1 : -1;
+        if (wasAvailable != entry.availableSeats > 0) {
+            publish(entry.key);
+        }
+    }
+
+    /**
+     * Возвращает направления из города за месяц по возрастанию минимальной цены
+     *
+     * @param origin город вылета
+     * @param month месяц вылета
+     * @param maxPrice максимальная цена (может быть null)
+     * @param limit максимальное количество направлений
+     * @return направления с минимальной ценой не выше maxPrice
+     */
+    public List<ExploreDestinationDTO> explore(String origin, YearMonth month, BigDecimal maxPrice, int limit) {
+        if (origin == null || origin.isBlank()) {
+            return List.of();
+        }
+        ExploreDestinationDTO[] sorted = destinations.getOrDefault(
+                new OriginMonth(origin.trim().toLowerCase(), month), EMPTY);
+        int end = maxPrice != null ? upperBound(sorted, maxPrice) : sorted.length;
+        return List.of(Arrays.copyOf(sorted, Math.min(end, Math.max(limit, 0))));
+    }
+
+    private void removeEntry(Long flightId) {
+        Entry previous = entries.remove(flightId);
+        if (previous == null) {
+            return;
+        }
+        Map<String, Cell> byDestination = cells.get(previous.key);
+        Cell cell = byDestination.get(previous.destinationKey);
+        cell.flights.remove(flightId);
+        if (cell.flights.isEmpty()) {
+            byDestination.remove(previous.destinationKey);
+        }
+        if (byDestination.isEmpty()) {
+            cells.remove(previous.key);
+        }
+        publish(previous.key);
+    }
+
+    private Cell cellOf(Entry entry) {
+        return cells.computeIfAbsent(entry.key, key -> new HashMap<>())
+                .computeIfAbsent(entry.destinationKey, destination -> new Cell());
+    }
+
+    private void publish(OriginMonth key) {
+        Map<String, Cell> byDestination = cells.get(key);
+        if (byDestination == null) {
+            destinations.remove(key);
+        } else {
+            destinations.put(key, sortedDestinations(byDestination));
+        }
+    }
+
+    private static ExploreDestinationDTO[] sortedDestinations(Map<String, Cell> byDestination) {
+        return byDestination.values().stream()
+                .map(Cell::cheapest)
+                .filter(destination -> destination != null)
+                .sorted(BY_PRICE)
+                .toArray(ExploreDestinationDTO[]::new);
+    }
+
+    // Количество направлений с минимальной ценой не выше указанной
+    private static int upperBound(ExploreDestinationDTO[] sorted, BigDecimal maxPrice) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].getLowestPrice().compareTo(maxPrice) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isExplorable(FlightSummaryDTO summary, LocalDateTime now) {
+        return summary.getStatus() == FlightStatus.SCHEDULED
+                && summary.getPrice() != null
+                && summary.getDepartureTime().isAfter(now);
+    }
+
+    /**
+     * Ключ индекса: город вылета в нижнем регистре и месяц вылета
+     */
+    private record OriginMonth(String origin, YearMonth month) {
+    }
+
+    /**
+     * Рейс в индексе с текущим количеством свободных мест
+     */
+    private static final class Entry {
+
+        private final Long flightId;
+        private final OriginMonth key;
+        private final String destinationKey;
+        private final String destination;
+        private final BigDecimal price;
+        private final LocalDateTime departureTime;
+        private int availableSeats;
+
+        private Entry(FlightSummaryDTO summary) {
+            this.flightId = summary.getId();
+            this.key = new OriginMonth(summary.getDepartureCity().toLowerCase(),
+                    YearMonth.from(summary.getDepartureTime()));
+            this.destinationKey = summary.getArrivalCity().toLowerCase();
+            this.destination = summary.getArrivalCity();
+            this.price = summary.getPrice();
+            this.departureTime = summary.getDepartureTime();
+            this.availableSeats = summary.getAvailableSeats();
+        }
+    }
+
+    /**
+     * Рейсы одного направления за месяц
+     */
+    private static final class Cell {
+
+        private final Map<Long, Entry> flights = new HashMap<>();
+
+        // Самый дешевый рейс со свободными местами или null, если все рейсы распроданы
+        private ExploreDestinationDTO cheapest() {
+            Entry best = null;
+            int available = 0;
+            for (Entry entry : flights.values()) {
+                if (entry.availableSeats <= 0) {
+                    continue;
+                }
+                available++;
+                if (best == null || entry.price.compareTo(best.price) < 0
+                        || (entry.price.compareTo(best.price) == 0 && entry.departureTime.isBefore(best.departureTime))) {
+                    best = entry;
+                }
+            }
+            return best == null ? null : new ExploreDestinationDTO(
+                    best.destination, best.price, best.flightId, best.departureTime, available);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.FareCalendarDayDTO;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.service.cache.FlightCacheVersions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Календарь цен по направлению: минимальная цена и доступность по дням в окне дат.
+ * Данные кэшируются неделями направления (с понедельника): запрос окна берет готовые
+ * недели из кэша, а все недостающие недели загружает одним сгруппированным запросом.
+ * Ключ недели содержит версию недели для направления: изменение рейса, а также распродажа рейса
+ * или появление на нем свободных мест (см. FlightSearchIndex) инвалидируют только недели
+ * направлений, под которые подходит маршрут рейса.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class FareCalendarService {
+
+    private static final int DAYS_IN_WEEK = 7;
+
+    private final FlightRepository flightRepository;
+    private final FlightCacheVersions cacheVersions;
+    private final Cache fareCache;
+
+    public FareCalendarService(FlightRepository flightRepository, FlightCacheVersions cacheVersions,
+                               CacheManager cacheManager) {
+        this.flightRepository = flightRepository;
+        this.cacheVersions = cacheVersions;
+        this.fareCache = cacheManager.getCache("fares");
+    }
+
+    /**
+     * Возвращает календарь цен направления на окно дат
+     *
+     * @param from город вылета или его часть
+     * @param to город прилета или его часть
+     * @param firstDay первый день окна
+     * @param lastDay последний день окна включительно
+     * @return дни окна по возрастанию даты, включая дни без рейсов
+     */
+    @Transactional(readOnly = true)
+    public List<FareCalendarDayDTO> getCalendar(String from, String to, LocalDate firstDay, LocalDate lastDay) {
+        String normalizedFrom = normalize(from);
+        String normalizedTo = normalize(to);
+
+        LocalDate firstWeek = firstDay.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate lastWeek = lastDay.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+        Map<LocalDate, FareCalendarDayDTO[]> weeks = new HashMap<>();
+        // Ключи недостающих недель фиксируются до запроса: если версия недели изменится во время
+        // загрузки, результат ляжет под прежним ключом и не будет выдан после изменения
+        Map<LocalDate, String> missing = new HashMap<>();
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (LocalDate week = firstWeek; !week.isAfter(lastWeek); week = week.plusWeeks(1)) {
+            String key = weekKey(normalizedFrom, normalizedTo, week);
+            FareCalendarDayDTO[] cached = fareCache.get(key, FareCalendarDayDTO[].class);
+            if (cached != null) {
+                weeks.put(week, cached);
+            } else {
+                missing.put(week, key);
+                firstMissing = firstMissing == null ? week : firstMissing;
+                lastMissing = week;
+            }
+        }
+
+        if (firstMissing != null) {
+            loadWeeks(normalizedFrom, normalizedTo, firstMissing, lastMissing, missing, weeks);
+        }
+
+        List<FareCalendarDayDTO> calendar = new ArrayList<>();
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            calendar.add(weeks.get(week)[day.getDayOfWeek().getValue() - 1]);
+        }
+        return calendar;
+    }
+
+    // Загружает недели [firstWeek, lastWeek] одним запросом и кладет в кэш каждую отсутствовавшую неделю
+    private void loadWeeks(String from, String to, LocalDate firstWeek, LocalDate lastWeek,
+                           Map<LocalDate, String> missing, Map<LocalDate, FareCalendarDayDTO[]> weeks) {
+        List<Object[]> rows = flightRepository.findDailyFares(from != null ? from : "", to != null ? to : "",
+                firstWeek.atStartOfDay(), lastWeek.plusWeeks(1).atStartOfDay());
+
+        Map<LocalDate, FareCalendarDayDTO> byDay = new HashMap<>();
+        for (Object[] row : rows) {
+            LocalDate day = row[0] instanceof Date date ? date.toLocalDate() : (LocalDate) row[0];
+            byDay.put(day, new FareCalendarDayDTO(day, (BigDecimal) row[1],
+                    ((Number) row[2]).intValue(), row[3] != null ? ((Number) row[3]).intValue() : 0));
+        }
+
+        for (Map.Entry<LocalDate, String> entry : missing.entrySet()) {
+            LocalDate week = entry.getKey();
+            FareCalendarDayDTO[] days = new FareCalendarDayDTO[DAYS_IN_WEEK];
+            for (int i = 0; i < DAYS_IN_WEEK; i++) {
+                LocalDate day = week.plusDays(i);
+                days[i] = byDay.getOrDefault(day, new FareCalendarDayDTO(day, null, 0, 0));
+            }
+            weeks.put(week, days);
+            fareCache.put(entry.getValue(), days);
+        }
+        log.debug("Fare calendar {} -> {}: loaded weeks {}..{} in one query", from, to, firstWeek, lastWeek);
+    }
+
+    private String weekKey(String from, String to, LocalDate week) {
+        return "week-" + from + "-" + to + "-" + week + "-v" + cacheVersions.week(week, from, to);
+    }
+
+    private static String normalize(String city) {
+        return city != null && !city.trim().isEmpty() ? city.trim().toLowerCase() : null;
+    }
+}
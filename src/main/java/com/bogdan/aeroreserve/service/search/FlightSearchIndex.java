@@ -0,0 +1,448 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.FlightCursor;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.service.cache.FlightCacheVersions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory индекс поиска рейсов.
+ * Хранит для каждой пары городов (вылет, прилет) массив сводок предстоящих рейсов
+ * (начиная с текущего дня), отсортированный по времени вылета. Поиск по дате выполняется
+ * двоичным поиском в массивах подходящих маршрутов без обращения к базе данных,
+ * страница собирается слиянием уже упорядоченных массивов.
+ * Индекс обновляется точечно при изменении рейса, количество свободных мест -
+ * по локальным событиям изменения доступности мест и периодически по счетчикам рейсов
+ * в таблице flights, которые учитывают бронирования на всех экземплярах приложения.
+ * Когда рейс распродан или снова получил свободные места, увеличивается версия его недели
+ * в FlightCacheVersions, чтобы календарь цен не показывал цену распроданного дня.
+ * Периодическая полная перестройка исправляет расхождения и удаляет вылетевшие рейсы.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlightSearchIndex {
+
+    private static final Comparator<FlightSummaryDTO> DEPARTURE_ORDER = Comparator
+            .comparing(FlightSummaryDTO::getDepartureTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(FlightSummaryDTO::getId);
+
+    private static final FlightSummaryDTO[] EMPTY = new FlightSummaryDTO[0];
+
+    private final FlightRepository flightRepository;
+    private final FlightCacheVersions cacheVersions;
+
+    // Массивы маршрутов не изменяются после публикации: обновление заменяет массив целиком
+    private volatile Map<RouteKey, FlightSummaryDTO[]> routes = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<RouteKey>> routesByOrigin = new ConcurrentHashMap<>();
+    private final Map<Long, RouteKey> routeByFlight = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> availableSeats = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    /**
+     * @return true если индекс построен и может обслуживать поиск
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Полностью перестраивает индекс одним запросом сводок рейсов
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.search.index-rebuild-interval:PT15M}",
+            fixedDelayString = "${app.search.index-rebuild-interval:PT15M}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<FlightSummaryDTO> summaries = flightRepository.findSummariesDepartingFrom(horizon());
+
+        Map<RouteKey, List<FlightSummaryDTO>> grouped = new HashMap<>();
+        for (FlightSummaryDTO summary : summaries) {
+            grouped.computeIfAbsent(RouteKey.of(summary), key -> new ArrayList<>()).add(summary);
+        }
+
+        Map<RouteKey, FlightSummaryDTO[]> rebuilt = new ConcurrentHashMap<>();
+        grouped.forEach((key, flights) -> {
+            FlightSummaryDTO[] sorted = flights.toArray(EMPTY);
+            Arrays.sort(sorted, DEPARTURE_ORDER);
+            rebuilt.put(key, sorted);
+        });
+
+        Map<String, Set<RouteKey>> rebuiltOrigins = new ConcurrentHashMap<>();
+        rebuilt.keySet().forEach(key -> rebuiltOrigins
+                .computeIfAbsent(key.from(), city -> ConcurrentHashMap.newKeySet()).add(key));
+
+        routeByFlight.clear();
+        summaries.forEach(summary -> {
+            routeByFlight.put(summary.getId(), RouteKey.of(summary));
+            availableSeats.computeIfAbsent(summary.getId(), id -> new AtomicInteger())
+                    .set(summary.getAvailableSeats());
+        });
+        availableSeats.keySet().retainAll(routeByFlight.keySet());
+        routes = rebuilt;
+        routesByOrigin = rebuiltOrigins;
+        ready = true;
+
+        log.info("Flight search index rebuilt: {} flights on {} routes in {} ms",
+                summaries.size(), rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Обновляет сводку рейса после фиксации транзакции, изменившей рейс
+     *
+     * @param event событие изменения рейса
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanged(FlightChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        Long flightId = event.getFlightId();
+        flightRepository.findSummaryById(flightId)
+                .filter(summary -> !summary.getDepartureTime().isBefore(horizon()))
+                .ifPresentOrElse(this::put, () -> remove(flightId));
+    }
+
+    /**
+     * Обновляет количество свободных мест из счетчиков рейсов в таблице flights.
+     * Локальные события не отражают бронирования на других экземплярах приложения;
+     * значение, прочитанное до одновременного локального события, исправится в следующий раз.
+     */
+    @Scheduled(fixedDelayString = "${app.search.availability-refresh-interval:PT30S}")
+    public void refreshAvailability() {
+        if (!ready) {
+            return;
+        }
+        int changed = 0;
+        for (Object[] row : flightRepository.findAvailableSeatCountersDepartingFrom(horizon())) {
+            Long flightId = (Long) row[0];
+            AtomicInteger counter = availableSeats.get(flightId);
+            if (counter == null) {
+                continue;
+            }
+            int available = ((Number) row[1]).intValue();
+            int previous = counter.getAndSet(available);
+            if (previous != available) {
+                changed++;
+                availabilityChanged(flightId, previous, available);
+            }
+        }
+        log.debug("Flight search availability refreshed, {} counters changed", changed);
+    }
+
+    /**
+     * Обновляет количество свободных мест рейса
+     *
+     * @param event событие изменения доступности места
+     */
+    @EventListener
+    public void onSeatAvailabilityChanged(SeatAvailabilityChangedEvent event) {
+        if (event.isRemote()) {
+            // Изменения других узлов учитываются обновлением из таблицы flights
+            return;
+        }
+        AtomicInteger counter = availableSeats.get(event.getFlightId());
+        if (counter != null) {
+            int delta = event.isAvailable() ? 1 : -1;
+            int available = counter.addAndGet(delta);
+            availabilityChanged(event.getFlightId(), available - delta, available);
+        }
+    }
+
+    /**
+     * Ищет рейсы по подстроке названий городов и дате вылета.
+     * Семантика совпадает с FlightRepository.findSummariesBySearchCriteriaAfter.
+     *
+     * @param from город вылета или его часть (может быть null)
+     * @param to город прилета или его часть (может быть null)
+     * @param date дата вылета (может быть null)
+     * @param cursor позиция страницы (null для первой страницы)
+     * @param size размер страницы
+     * @return страница сводок рейсов, упорядоченных по времени вылета, с точным количеством
+     */
+    public FlightPageDTO search(String from, String to, LocalDate date, FlightCursor cursor, int size) {
+        String normalizedFrom = normalize(from);
+        String normalizedTo = normalize(to);
+        LocalDateTime start = date != null ? date.atStartOfDay() : null;
+        LocalDateTime end = date != null ? date.plusDays(1).atStartOfDay() : null;
+        boolean backward = cursor != null && cursor.isBackward();
+
+        // Для каждого подходящего маршрута - интервал рейсов даты и позиция чтения в нем
+        Map<RouteKey, FlightSummaryDTO[]> snapshot = routes;
+        List<RouteSlice> slices = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, Set<RouteKey>> origin : routesByOrigin.entrySet()) {
+            if (normalizedFrom != null && !origin.getKey().contains(normalizedFrom)) {
+                continue;
+            }
+            for (RouteKey key : origin.getValue()) {
+                if (normalizedTo != null && !key.to().contains(normalizedTo)) {
+                    continue;
+                }
+                FlightSummaryDTO[] flights = snapshot.get(key);
+                if (flights == null) {
+                    continue;
+                }
+                int fromIndex = start != null ? lowerBound(flights, start) : 0;
+                int toIndex = Math.max(fromIndex, end != null ? lowerBound(flights, end) : flights.length);
+                total += toIndex - fromIndex;
+
+                // Вперед - первый рейс строго после позиции, назад - первый не раньше нее
+                int position = cursor == null ? fromIndex
+                        : firstAtOrAfter(flights, fromIndex, toIndex, cursor, !backward);
+                if (backward ? position > fromIndex : position < toIndex) {
+                    slices.add(new RouteSlice(flights, fromIndex, toIndex, position));
+                }
+            }
+        }
+
+        // Выборка на один рейс больше страницы в направлении чтения, как в запросах к базе данных
+        List<FlightSummaryDTO> fetched = backward ? mergeBackward(slices, size + 1) : mergeForward(slices, size + 1);
+        return FlightPageDTO.of(fetched, size, cursor, total, false);
+    }
+
+    // Слияние упорядоченных интервалов маршрутов от позиций чтения вперед
+    private List<FlightSummaryDTO> mergeForward(List<RouteSlice> slices, int limit) {
+        PriorityQueue<RouteSlice> queue = new PriorityQueue<>(Math.max(slices.size(), 1),
+                (a, b) -> DEPARTURE_ORDER.compare(a.flights[a.position], b.flights[b.position]));
+        queue.addAll(slices);
+        List<FlightSummaryDTO> result = new ArrayList<>(limit);
+        while (result.size() < limit && !queue.isEmpty()) {
+            RouteSlice slice = queue.poll();
+            result.add(withLiveAvailability(slice.flights[slice.position]));
+            slice.position++;
+            if (slice.position < slice.toIndex) {
+                queue.add(slice);
+            }
+        }
+        return result;
+    }
+
+    // Слияние упорядоченных интервалов маршрутов от позиций чтения назад; результат по возрастанию
+    private List<FlightSummaryDTO> mergeBackward(List<RouteSlice> slices, int limit) {
+        PriorityQueue<RouteSlice> queue = new PriorityQueue<>(Math.max(slices.size(), 1),
+                (a, b) -> DEPARTURE_ORDER.compare(b.flights[b.position - 1], a.flights[a.position - 1]));
+        queue.addAll(slices);
+        List<FlightSummaryDTO> result = new ArrayList<>(limit);
+        while (result.size() < limit && !queue.isEmpty()) {
+            RouteSlice slice = queue.poll();
+            slice.position--;
+            result.add(withLiveAvailability(slice.flights[slice.position]));
+            if (slice.position > slice.fromIndex) {
+                queue.add(slice);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Возвращает города вылета, название которых содержит указанную подстроку
+     *
+     * @param city город или его часть
+     * @return названия городов в нижнем регистре
+     */
+    public List<String> findOrigins(String city) {
+        String normalized = normalize(city);
+        if (normalized == null) {
+            return List.of();
+        }
+        List<String> origins = new ArrayList<>();
+        for (String origin : routesByOrigin.keySet()) {
+            if (origin.contains(normalized)) {
+                origins.add(origin);
+            }
+        }
+        return origins;
+    }
+
+    /**
+     * Возвращает рейсы из города, вылетающие в заданном интервале, по всем маршрутам города.
+     * Используется поиском стыковок как список ребер графа маршрутов, зависящих от времени.
+     *
+     * @param origin город вылета в нижнем регистре
+     * @param from начало интервала вылета
+     * @param until конец интервала вылета, не включая
+     * @return рейсы с актуальным количеством свободных мест, без упорядочивания между маршрутами
+     */
+    public List<FlightSummaryDTO> findDepartures(String origin, LocalDateTime from, LocalDateTime until) {
+        Set<RouteKey> originRoutes = routesByOrigin.get(origin);
+        if (originRoutes == null) {
+            return List.of();
+        }
+        Map<RouteKey, FlightSummaryDTO[]> snapshot = routes;
+        List<FlightSummaryDTO> departures = new ArrayList<>();
+        for (RouteKey key : originRoutes) {
+            FlightSummaryDTO[] flights = snapshot.get(key);
+            if (flights == null) {
+                continue;
+            }
+            int fromIndex = lowerBound(flights, from);
+            int toIndex = lowerBound(flights, until);
+            for (int i = fromIndex; i < toIndex; i++) {
+                departures.add(withLiveAvailability(flights[i]));
+            }
+        }
+        return departures;
+    }
+
+    // Первый индекс рейса в интервале не раньше позиции (strict - строго после позиции)
+    private static int firstAtOrAfter(FlightSummaryDTO[] flights, int fromIndex, int toIndex,
+                                      FlightCursor cursor, boolean strict) {
+        int low = fromIndex;
+        int high = toIndex;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = cursor.compareFlight(flights[mid]);
+            if (comparison < 0 || (strict && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Начало индексируемого интервала: рейсы текущего дня и позже
+    private static LocalDateTime horizon() {
+        return LocalDate.now().atStartOfDay();
+    }
+
+    private FlightSummaryDTO withLiveAvailability(FlightSummaryDTO summary) {
+        AtomicInteger counter = availableSeats.get(summary.getId());
+        return counter != null ? summary.withAvailableSeats(counter.get()) : summary;
+    }
+
+    private synchronized void put(FlightSummaryDTO summary) {
+        removeFromRoute(summary.getId());
+
+        RouteKey key = RouteKey.of(summary);
+        FlightSummaryDTO[] current = routes.getOrDefault(key, EMPTY);
+        int index = Arrays.binarySearch(current, summary, DEPARTURE_ORDER);
+        int insertAt = index >= 0 ? index : -index - 1;
+
+        FlightSummaryDTO[] updated = new FlightSummaryDTO[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = summary;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        routes.put(key, updated);
+        routesByOrigin.computeIfAbsent(key.from(), city -> ConcurrentHashMap.newKeySet()).add(key);
+
+        routeByFlight.put(summary.getId(), key);
+        availableSeats.computeIfAbsent(summary.getId(), id -> new AtomicInteger()).set(summary.getAvailableSeats());
+    }
+
+    private synchronized void remove(Long flightId) {
+        removeFromRoute(flightId);
+        availableSeats.remove(flightId);
+    }
+
+    private void removeFromRoute(Long flightId) {
+        RouteKey key = routeByFlight.remove(flightId);
+        if (key == null) {
+            return;
+        }
+        FlightSummaryDTO[] current = routes.getOrDefault(key, EMPTY);
+        FlightSummaryDTO[] updated = Arrays.stream(current)
+                .filter(summary -> !summary.getId().equals(flightId))
+                .toArray(FlightSummaryDTO[]::new);
+        if (updated.length == 0) {
+            routes.remove(key);
+            Set<RouteKey> originRoutes = routesByOrigin.get(key.from());
+            if (originRoutes != null) {
+                originRoutes.remove(key);
+            }
+        } else {
+            routes.put(key, updated);
+        }
+    }
+
+    // Рейс распродан или снова получил свободные места: кэшированная неделя календаря цен устарела
+    private void availabilityChanged(Long flightId, int previous, int available) {
+        if ((previous > 0) == (available > 0)) {
+            return;
+        }
+        RouteKey key = routeByFlight.get(flightId);
+        for (FlightSummaryDTO summary : key != null ? routes.getOrDefault(key, EMPTY) : EMPTY) {
+            if (summary.getId().equals(flightId)) {
+                cacheVersions.availabilityChanged(summary);
+                return;
+            }
+        }
+    }
+
+    // Первый индекс рейса с временем вылета не раньше указанного
+    private static int lowerBound(FlightSummaryDTO[] flights, LocalDateTime time) {
+        int low = 0;
+        int high = flights.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            LocalDateTime departure = flights[mid].getDepartureTime();
+            if (departure != null && departure.isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String city) {
+        return city != null && !city.trim().isEmpty() ? city.trim().toLowerCase() : null;
+    }
+
+    /**
+     * Интервал [fromIndex, toIndex) массива маршрута и текущая позиция слияния
+     */
+    private static final class RouteSlice {
+        private final FlightSummaryDTO[] flights;
+        private final int fromIndex;
+        private final int toIndex;
+        private int position;
+
+        private RouteSlice(FlightSummaryDTO[] flights, int fromIndex, int toIndex, int position) {
+            this.flights = flights;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Ключ маршрута: названия городов в нижнем регистре
+     */
+    private record RouteKey(String from, String to) {
+
+        private static RouteKey of(FlightSummaryDTO summary) {
+            return new RouteKey(summary.getDepartureCity().toLowerCase(), summary.getArrivalCity().toLowerCase());
+        }
+    }
+}
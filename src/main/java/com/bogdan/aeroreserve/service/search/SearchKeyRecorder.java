@@ -0,0 +1,89 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.SearchKeyDTO;
+import com.bogdan.aeroreserve.repository.SearchKeyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учет направлений поиска рейсов для прогрева кэша после запуска.
+ * Поиски считаются в памяти и периодически добавляются в базу данных одним пакетом,
+ * поэтому запрос поиска не выполняет дополнительной записи.
+ *
+ * @author Bogdan
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchKeyRecorder {
+
+    private final SearchKeyRepository searchKeyRepository;
+
+    private final Map<Route, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Учитывает поиск по направлению; поиски без города вылета или прилета не учитываются
+     *
+     * @param from город вылета или его часть
+     * @param to город прилета или его часть
+     */
+    public void record(String from, String to) {
+        if (from == null || from.isBlank() || to == null || to.isBlank()) {
+            return;
+        }
+        pending.computeIfAbsent(new Route(from.trim().toLowerCase(), to.trim().toLowerCase()),
+                route -> new LongAdder()).increment();
+    }
+
+    /**
+     * Возвращает самые частые направления поиска
+     *
+     * @param since учитываются направления, которые искали не раньше этого времени
+     * @param limit количество направлений
+     * @return направления по убыванию количества поисков
+     */
+    public List<SearchKeyDTO> findPopular(LocalDateTime since, int limit) {
+        return searchKeyRepository.findTop(since, limit);
+    }
+
+    /**
+     * Сохраняет накопленные поиски
+     */
+    @Scheduled(fixedDelayString = "${app.search.key-flush-interval:PT1M}")
+    @PreDestroy
+    public void flush() {
+        List<SearchKeyDTO> searches = new ArrayList<>();
+        for (Route route : pending.keySet()) {
+            LongAdder counter = pending.remove(route);
+            if (counter != null) {
+                searches.add(new SearchKeyDTO(route.from(), route.to(), counter.sum()));
+            }
+        }
+        if (searches.isEmpty()) {
+            return;
+        }
+        try {
+            searchKeyRepository.addSearches(searches, LocalDateTime.now());
+            log.debug("Recorded {} search routes", searches.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to record {} search routes: {}", searches.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Направление поиска
+     */
+    private record Route(String from, String to) {
+    }
+}
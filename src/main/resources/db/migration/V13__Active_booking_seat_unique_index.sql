@@ -0,0 +1,7 @@
+-- Место может быть забронировано повторно после отмены или возврата,
+-- поэтому уникальность seat_id обеспечивается только среди активных бронирований
+ALTER TABLE bookings DROP CONSTRAINT IF EXISTS uk_bookings_seat_id;
+
+CREATE UNIQUE INDEX uk_bookings_active_seat
+    ON bookings (seat_id)
+    WHERE status IN ('PENDING_PAYMENT', 'CONFIRMED');
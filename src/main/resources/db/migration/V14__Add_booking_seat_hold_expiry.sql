@@ -0,0 +1,12 @@
+-- Срок удержания места для бронирований, ожидающих оплаты
+ALTER TABLE bookings ADD COLUMN hold_expires_at TIMESTAMP;
+
+-- Существующие неоплаченные бронирования получают срок удержания по умолчанию
+UPDATE bookings
+SET hold_expires_at = booking_date + INTERVAL '15 minutes'
+WHERE status = 'PENDING_PAYMENT';
+
+-- Индекс для выборки истекших удержаний без сканирования всей таблицы
+CREATE INDEX idx_bookings_pending_hold_expiry
+    ON bookings (hold_expires_at)
+    WHERE status = 'PENDING_PAYMENT';
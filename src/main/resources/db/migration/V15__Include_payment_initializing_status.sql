@@ -0,0 +1,10 @@
+-- Бронирование в статусе PAYMENT_INITIALIZING уже занимает место и удерживает его ограниченное время
+DROP INDEX IF EXISTS uk_bookings_active_seat;
+CREATE UNIQUE INDEX uk_bookings_active_seat
+    ON bookings (seat_id)
+    WHERE status IN ('PAYMENT_INITIALIZING', 'PENDING_PAYMENT', 'CONFIRMED');
+
+DROP INDEX IF EXISTS idx_bookings_pending_hold_expiry;
+CREATE INDEX idx_bookings_pending_hold_expiry
+    ON bookings (hold_expires_at)
+    WHERE status IN ('PAYMENT_INITIALIZING', 'PENDING_PAYMENT');
@@ -0,0 +1,7 @@
+-- Групповые бронирования: участники группы ссылаются на ведущее бронирование,
+-- которое хранит единый платеж за все места
+ALTER TABLE bookings ADD COLUMN group_lead_id BIGINT REFERENCES bookings(id);
+
+CREATE INDEX idx_bookings_group_lead_id
+    ON bookings (group_lead_id)
+    WHERE group_lead_id IS NOT NULL;
@@ -0,0 +1,57 @@
+-- Денормализованные счетчики свободных мест по классам обслуживания
+ALTER TABLE flights
+    ADD COLUMN available_economy_seats INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN available_business_seats INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN available_first_class_seats INTEGER NOT NULL DEFAULT 0;
+
+UPDATE flights f
+SET available_economy_seats = s.economy,
+    available_business_seats = s.business,
+    available_first_class_seats = s.first_class
+FROM (
+    SELECT flight_id,
+           COUNT(*) FILTER (WHERE available AND COALESCE(seat_class, 'ECONOMY') = 'ECONOMY') AS economy,
+           COUNT(*) FILTER (WHERE available AND seat_class = 'BUSINESS') AS business,
+           COUNT(*) FILTER (WHERE available AND seat_class = 'FIRST') AS first_class
+    FROM seats
+    GROUP BY flight_id
+) s
+WHERE f.id = s.flight_id;
+
+-- Места занимает и освобождает приложение вместе со счетчиками,
+-- поэтому триггер аудита больше не меняет таблицу seats
+CREATE OR REPLACE FUNCTION log_booking_status_changes()
+    RETURNS TRIGGER AS $$
+BEGIN
+    -- Логируем только если изменился статус
+    IF OLD.status IS DISTINCT FROM NEW.status THEN
+        INSERT INTO booking_audit_log (
+            booking_id,
+            old_status,
+            new_status,
+            additional_info
+        ) VALUES (
+                     NEW.id,
+                     OLD.status,
+                     NEW.status,
+                     jsonb_build_object(
+                             'flight_id', NEW.flight_id,
+                             'user_id', NEW.user_id,
+                             'total_price', NEW.total_price,
+                             'passenger_name', NEW.passenger_name
+                     )
+                 );
+    END IF;
+
+    -- Отменяем связанные платежи при отмене бронирования
+    IF OLD.status != 'CANCELLED' AND NEW.status = 'CANCELLED' THEN
+        UPDATE payments
+        SET status = 'CANCELLED',
+            updated_at = CURRENT_TIMESTAMP
+        WHERE booking_id = NEW.id
+          AND status IN ('PENDING', 'PROCESSING');
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
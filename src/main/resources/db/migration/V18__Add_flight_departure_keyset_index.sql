@@ -0,0 +1,6 @@
+-- Постраничный просмотр рейсов по позиции (время вылета, id):
+-- страница читается из индекса начиная с позиции, без пропуска предыдущих строк
+CREATE INDEX idx_flights_departure_id
+    ON flights (departure_time, id);
+
+DROP INDEX IF EXISTS idx_flights_departure_time;
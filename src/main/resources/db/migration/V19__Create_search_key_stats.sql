@@ -0,0 +1,12 @@
+-- Частота поисков по направлениям: популярные направления прогреваются в кэше после запуска.
+-- Города хранятся так, как их вводят в поиске (в нижнем регистре, без пробелов по краям)
+CREATE TABLE search_key_stats (
+    departure_city   VARCHAR(255) NOT NULL,
+    arrival_city     VARCHAR(255) NOT NULL,
+    searches         BIGINT       NOT NULL DEFAULT 0,
+    last_searched_at TIMESTAMP    NOT NULL,
+    PRIMARY KEY (departure_city, arrival_city)
+);
+
+CREATE INDEX idx_search_key_stats_searches
+    ON search_key_stats (searches DESC);
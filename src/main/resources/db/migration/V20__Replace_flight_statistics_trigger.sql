@@ -0,0 +1,32 @@
+-- Статистика рейсов ведется приложением по событиям изменения статуса бронирований
+-- (приращения счетчиков пакетами), поэтому триггер с полным пересчетом COUNT
+-- на каждое подтверждение больше не нужен
+DROP TRIGGER IF EXISTS trigger_update_flight_stats ON bookings;
+DROP FUNCTION IF EXISTS update_flight_statistics();
+
+-- Одна строка статистики на рейс: нужна для INSERT ... ON CONFLICT (flight_id)
+DELETE FROM flight_statistics s
+USING flight_statistics newer
+WHERE newer.flight_id = s.flight_id
+  AND newer.id > s.id;
+
+CREATE UNIQUE INDEX idx_flight_statistics_flight_unique
+    ON flight_statistics (flight_id);
+
+-- Приращения применяются к текущим значениям, поэтому счетчики существующих строк
+-- один раз приводятся к фактическим данным
+UPDATE flight_statistics s
+SET total_bookings = COALESCE(c.bookings, 0),
+    total_passengers = COALESCE(c.passengers, 0),
+    load_factor = COALESCE(c.passengers * 100.0 / NULLIF(a.total_seats, 0), 0),
+    last_updated = CURRENT_TIMESTAMP
+FROM flights f
+LEFT JOIN aircrafts a ON a.id = f.aircraft_id
+LEFT JOIN (
+    SELECT flight_id,
+           COUNT(*) AS bookings,
+           COUNT(*) FILTER (WHERE status = 'CONFIRMED') AS passengers
+    FROM bookings
+    GROUP BY flight_id
+) c ON c.flight_id = f.id
+WHERE s.flight_id = f.id;
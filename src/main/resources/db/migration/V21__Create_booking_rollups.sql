@@ -0,0 +1,39 @@
+-- Предварительно агрегированные показатели продаж по направлению, авиакомпании и периоду.
+-- Период определяется датой вылета рейса; для каждого рейса ведутся строки дня, недели
+-- и месяца, поэтому отчеты за год читают сотни строк вместо всех бронирований.
+-- Рейсы без маршрута или авиакомпании учитываются с идентификатором 0.
+-- Вместимость рейсов не хранится: она считается по рейсам при построении отчета.
+CREATE TABLE booking_rollups (
+    period_type     VARCHAR(10)    NOT NULL,
+    period_start    DATE           NOT NULL,
+    route_id        BIGINT         NOT NULL,
+    airline_id      BIGINT         NOT NULL,
+    bookings        BIGINT         NOT NULL DEFAULT 0,
+    passengers      BIGINT         NOT NULL DEFAULT 0,
+    revenue         NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    refunds         BIGINT         NOT NULL DEFAULT 0,
+    refunded_amount NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    last_updated    TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (period_type, period_start, route_id, airline_id)
+);
+
+CREATE INDEX idx_booking_rollups_airline
+    ON booking_rollups (period_type, airline_id, period_start);
+
+-- Начальное заполнение по существующим бронированиям. Выручка учитывается по бронированиям,
+-- которые были оплачены (подтвержденные и возвращенные), возвраты - отдельно
+INSERT INTO booking_rollups (period_type, period_start, route_id, airline_id,
+                             bookings, passengers, revenue, refunds, refunded_amount)
+SELECT p.period_type,
+       date_trunc(p.period_type, f.departure_time)::date,
+       COALESCE(f.route_id, 0),
+       COALESCE(f.airline_id, 0),
+       COUNT(*),
+       COUNT(*) FILTER (WHERE b.status = 'CONFIRMED'),
+       COALESCE(SUM(b.total_price) FILTER (WHERE b.status IN ('CONFIRMED', 'REFUNDED')), 0),
+       COUNT(*) FILTER (WHERE b.status = 'REFUNDED'),
+       COALESCE(SUM(b.total_price) FILTER (WHERE b.status = 'REFUNDED'), 0)
+FROM bookings b
+JOIN flights f ON f.id = b.flight_id
+CROSS JOIN (VALUES ('DAY'), ('WEEK'), ('MONTH')) AS p(period_type)
+GROUP BY 1, 2, 3, 4;
@@ -0,0 +1,8 @@
+-- Аренда номеров узлов генератора идентификаторов: каждый экземпляр приложения при запуске
+-- занимает свободный номер (0-1023) и периодически продлевает аренду. Номер, аренда которого
+-- не продлевалась дольше срока, может занять другой экземпляр
+CREATE TABLE id_generator_nodes (
+    node_id      INTEGER      PRIMARY KEY CHECK (node_id BETWEEN 0 AND 1023),
+    owner        VARCHAR(255) NOT NULL,
+    heartbeat_at TIMESTAMP    NOT NULL
+);
@@ -0,0 +1,51 @@
+-- Время начала последнего пересчета агрегатов продаж. Узлы приложения отбрасывают
+-- накопленные приращения событий до этого времени: такие бронирования уже учтены пересчетом.
+-- Запись приращений блокирует строку на чтение, поэтому пересчет ждет записанные пачки,
+-- а пачки, начатые во время пересчета, видят новое время
+CREATE TABLE booking_rollup_state (
+    id                 INTEGER   PRIMARY KEY CHECK (id = 1),
+    rebuild_started_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO booking_rollup_state (id, rebuild_started_at)
+VALUES (1, TIMESTAMP '1970-01-01 00:00:00');
+
+-- Полный пересчет агрегатов по бронированиям: единственное определение запроса
+-- для миграций и приложения. Выручка учитывается по бронированиям, которые были оплачены
+-- (подтвержденные и возвращенные), возвраты - отдельно. Время начала фиксируется до чтения
+-- бронирований, поэтому все события до него попадают в пересчет
+CREATE OR REPLACE FUNCTION rebuild_booking_rollups(rollup_updated_at TIMESTAMP)
+    RETURNS BIGINT AS $$
+DECLARE
+    rebuilt_rows BIGINT;
+BEGIN
+    UPDATE booking_rollup_state
+    SET rebuild_started_at = clock_timestamp()::timestamp
+    WHERE id = 1;
+
+    DELETE FROM booking_rollups;
+
+    INSERT INTO booking_rollups (period_type, period_start, route_id, airline_id,
+                                 bookings, passengers, revenue, refunds, refunded_amount, last_updated)
+    SELECT p.period_type,
+           date_trunc(p.period_type, f.departure_time)::date,
+           COALESCE(f.route_id, 0),
+           COALESCE(f.airline_id, 0),
+           COUNT(*),
+           COUNT(*) FILTER (WHERE b.status = 'CONFIRMED'),
+           COALESCE(SUM(b.total_price) FILTER (WHERE b.status IN ('CONFIRMED', 'REFUNDED')), 0),
+           COUNT(*) FILTER (WHERE b.status = 'REFUNDED'),
+           COALESCE(SUM(b.total_price) FILTER (WHERE b.status = 'REFUNDED'), 0),
+           rollup_updated_at
+    FROM bookings b
+    JOIN flights f ON f.id = b.flight_id
+    CROSS JOIN (VALUES ('DAY'), ('WEEK'), ('MONTH')) AS p(period_type)
+    GROUP BY 1, 2, 3, 4;
+
+    GET DIAGNOSTICS rebuilt_rows = ROW_COUNT;
+    RETURN rebuilt_rows;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Агрегаты приводятся к тому же определению, что использует приложение
+SELECT rebuild_booking_rollups(CURRENT_TIMESTAMP::timestamp);
@@ -0,0 +1,67 @@
+package com.bogdan.aeroreserve.dto;
+
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты кодирования позиции списка рейсов в токен и обратно.
+ */
+class FlightCursorTest {
+
+    private final FlightSummaryDTO flight = new FlightSummaryDTO(42L, "AR42", "Москва", "Сочи",
+            LocalDateTime.of(2026, 3, 1, 7, 5, 30), LocalDateTime.of(2026, 3, 1, 9, 0),
+            BigDecimal.TEN, "Airline", "A320", 180, FlightStatus.SCHEDULED, 100);
+
+    @Test
+    void forwardCursorRoundTrips() {
+        FlightCursor cursor = FlightCursor.after(flight);
+
+        FlightCursor decoded = FlightCursor.decode(cursor.encode()).orElseThrow();
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.isBackward()).isFalse();
+        assertThat(decoded.compareFlight(flight)).isZero();
+    }
+
+    @Test
+    void backwardCursorRoundTrips() {
+        FlightCursor cursor = FlightCursor.before(flight);
+
+        FlightCursor decoded = FlightCursor.decode(cursor.encode()).orElseThrow();
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.isBackward()).isTrue();
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        assertThat(FlightCursor.after(flight).encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void damagedTokenMeansFirstPage() {
+        assertThat(FlightCursor.decode(null)).isEmpty();
+        assertThat(FlightCursor.decode(" ")).isEmpty();
+        assertThat(FlightCursor.decode("not a token")).isEmpty();
+        assertThat(FlightCursor.decode(FlightCursor.after(flight).encode().substring(3))).isEmpty();
+    }
+
+    @Test
+    void comparesFlightsByDepartureTimeThenId() {
+        FlightCursor cursor = FlightCursor.after(flight);
+        FlightSummaryDTO sameTimeHigherId = new FlightSummaryDTO(43L, "AR43", "Москва", "Сочи",
+                flight.getDepartureTime(), flight.getArrivalTime(), BigDecimal.TEN, "Airline", "A320", 180,
+                FlightStatus.SCHEDULED, 100);
+        FlightSummaryDTO earlier = new FlightSummaryDTO(99L, "AR99", "Москва", "Сочи",
+                flight.getDepartureTime().minusMinutes(1), flight.getArrivalTime(), BigDecimal.TEN, "Airline",
+                "A320", 180, FlightStatus.SCHEDULED, 100);
+
+        assertThat(cursor.compareFlight(sameTimeHigherId)).isPositive();
+        assertThat(cursor.compareFlight(earlier)).isNegative();
+    }
+}
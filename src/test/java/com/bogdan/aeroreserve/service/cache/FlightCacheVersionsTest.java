@@ -0,0 +1,80 @@
+package com.bogdan.aeroreserve.service.cache;
+
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.event.FlightChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты версий областей кэша рейсов: изменение рейса делает устаревшими только страницы списка,
+ * интервал дней вылета которых содержит день рейса, и только недели календаря цен направлений,
+ * под которые подходит маршрут рейса.
+ */
+class FlightCacheVersionsTest {
+
+    private final LocalDate day = LocalDate.of(2026, 5, 10);
+    private final FlightRepository flightRepository = mock(FlightRepository.class);
+    private final FlightCacheVersions versions = new FlightCacheVersions(flightRepository, new SimpleMeterRegistry());
+
+    @Test
+    void changeInvalidatesOnlyPagesCoveringItsDays() {
+        long loaded = versions.listingVersion();
+        when(flightRepository.findSummaryById(1L)).thenReturn(Optional.of(flight(1L, day.plusDays(5))));
+
+        versions.onFlightChanged(new FlightChangedEvent(1L, flight(1L, day)));
+
+        assertThat(versions.listingChangedSince(day.minusDays(3), day.minusDays(1), loaded)).isFalse();
+        assertThat(versions.listingChangedSince(day.plusDays(1), day.plusDays(4), loaded)).isFalse();
+        assertThat(versions.listingChangedSince(day, day, loaded)).isTrue();
+        assertThat(versions.listingChangedSince(day.plusDays(5), LocalDate.MAX, loaded)).isTrue();
+        assertThat(versions.listingChangedSince(LocalDate.MIN, day.plusDays(1), loaded)).isTrue();
+    }
+
+    @Test
+    void pageLoadedAfterChangeStaysValid() {
+        when(flightRepository.findSummaryById(1L)).thenReturn(Optional.of(flight(1L, day)));
+        versions.onFlightChanged(new FlightChangedEvent(1L, null));
+
+        long loaded = versions.listingVersion();
+
+        assertThat(versions.listingChangedSince(LocalDate.MIN, LocalDate.MAX, loaded)).isFalse();
+    }
+
+    @Test
+    void changeOfUnknownDayInvalidatesEveryPage() {
+        long loaded = versions.listingVersion();
+        when(flightRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+
+        versions.onFlightChanged(new FlightChangedEvent(1L, null));
+
+        assertThat(versions.listingChangedSince(day, day, loaded)).isTrue();
+    }
+
+    @Test
+    void weekVersionIsScopedToMatchingRoutes() {
+        long sochi = versions.week(day, "москва", "сочи");
+        long kazan = versions.week(day, "москва", "казань");
+
+        versions.availabilityChanged(flight(1L, day));
+
+        assertThat(versions.week(day, "москва", "сочи")).isGreaterThan(sochi);
+        assertThat(versions.week(day, "моск", null)).isGreaterThan(sochi);
+        assertThat(versions.week(day, "москва", "казань")).isEqualTo(kazan);
+        assertThat(versions.week(day.plusWeeks(1), "москва", "сочи")).isZero();
+    }
+
+    private static FlightSummaryDTO flight(Long id, LocalDate day) {
+        return new FlightSummaryDTO(id, "AR" + id, "Москва", "Сочи", day.atTime(10, 0), day.atTime(12, 0),
+                BigDecimal.TEN, "Airline", "A320", 180, FlightStatus.SCHEDULED, 100);
+    }
+}
@@ -0,0 +1,116 @@
+package com.bogdan.aeroreserve.service.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тесты генератора идентификаторов: уникальность при конкурентной генерации
+ * на одном узле и на разных узлах, монотонность и формат текстовых номеров.
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void concurrentIdsOnOneNodeAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+
+        Set<Long> ids = generateConcurrently(List.of(generator));
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void concurrentIdsOnDifferentNodesDoNotCollide() throws Exception {
+        List<SnowflakeIdGenerator> nodes = List.of(new SnowflakeIdGenerator(0), new SnowflakeIdGenerator(1),
+                new SnowflakeIdGenerator(NodeIdLease.MAX_NODE_ID));
+
+        Set<Long> ids = generateConcurrently(nodes);
+
+        assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void idsOfOneNodeStrictlyIncrease() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+
+        long previous = generator.nextId();
+        // Больше 4096 значений подряд: последовательность переполняется внутри миллисекунды
+        for (int i = 0; i < 100_000; i++) {
+            long next = generator.nextId();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void idCarriesNodeId() {
+        long id = new SnowflakeIdGenerator(513).nextId();
+
+        assertThat((id >>> 12) & NodeIdLease.MAX_NODE_ID).isEqualTo(513);
+    }
+
+    @Test
+    void codeHasPrefixAndFixedLengthCrockfordBase32() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+
+        String first = generator.nextCode("AR");
+        String second = generator.nextCode("AR");
+
+        assertThat(first).matches("AR[0-9A-HJKMNP-TV-Z]{13}");
+        assertThat(second).isNotEqualTo(first);
+        // Коды одного узла сравниваются как строки в порядке генерации
+        assertThat(second).isGreaterThan(first);
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(NodeIdLease.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Потоки одновременно стартуют и распределяются по генераторам по кругу
+    private static Set<Long> generateConcurrently(List<SnowflakeIdGenerator> generators) throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                SnowflakeIdGenerator generator = generators.get(t % generators.size());
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    long[] generated = new long[IDS_PER_THREAD];
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        generated[i] = generator.nextId();
+                    }
+                    for (long id : generated) {
+                        ids.add(id);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return ids;
+    }
+}
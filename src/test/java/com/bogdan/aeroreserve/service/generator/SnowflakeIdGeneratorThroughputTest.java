@@ -0,0 +1,89 @@
+package com.bogdan.aeroreserve.service.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер пропускной способности генератора идентификаторов после прогрева.
+ * Тест печатает фактическую скорость и проверяет, что она не ниже миллиона
+ * идентификаторов в секунду в одном потоке и при конкурентной генерации; порог
+ * занижен с запасом, чтобы тест не зависел от загрузки машины сборки.
+ */
+class SnowflakeIdGeneratorThroughputTest {
+
+    private static final long MIN_IDS_PER_SECOND = 1_000_000;
+    private static final int IDS_PER_ROUND = 4_000_000;
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int THREADS = 4;
+
+    @Test
+    void singleThreadGeneratesMillionsOfIdsPerSecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            generate(generator, IDS_PER_ROUND);
+        }
+
+        long started = System.nanoTime();
+        long checksum = generate(generator, IDS_PER_ROUND);
+        double rate = ratePerSecond(IDS_PER_ROUND, System.nanoTime() - started);
+
+        System.out.printf("Snowflake single thread: %,.0f ids/s (checksum %d)%n", rate, checksum);
+        assertThat(rate).isGreaterThanOrEqualTo(MIN_IDS_PER_SECOND);
+    }
+
+    @Test
+    void concurrentThreadsGenerateMillionsOfIdsPerSecond() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                runConcurrently(executor, generator);
+            }
+
+            long started = System.nanoTime();
+            runConcurrently(executor, generator);
+            double rate = ratePerSecond(IDS_PER_ROUND, System.nanoTime() - started);
+
+            System.out.printf("Snowflake %d threads: %,.0f ids/s%n", THREADS, rate);
+            assertThat(rate).isGreaterThanOrEqualTo(MIN_IDS_PER_SECOND);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runConcurrently(ExecutorService executor, SnowflakeIdGenerator generator) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return generate(generator, IDS_PER_ROUND / THREADS);
+            }));
+        }
+        start.countDown();
+        for (Future<Long> future : futures) {
+            future.get();
+        }
+    }
+
+    // Сумма идентификаторов не дает JIT выбросить генерацию как неиспользуемую
+    private static long generate(SnowflakeIdGenerator generator, int count) {
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            checksum += generator.nextId();
+        }
+        return checksum;
+    }
+
+    private static double ratePerSecond(long ids, long nanos) {
+        return ids * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,101 @@
+package com.bogdan.aeroreserve.service.inventory;
+
+import com.bogdan.aeroreserve.dto.SeatDTO;
+import com.bogdan.aeroreserve.enums.SeatClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты поиска соседних свободных мест в битовой карте рейса: блоки не переходят
+ * границу ряда и проход (ряды по шесть мест, компоновка 3-3), в том числе когда ряд
+ * пересекает границу 64-битного слова.
+ */
+class FlightSeatMapTest {
+
+    private static final String LETTERS = "ABCDEF";
+
+    @Test
+    void blockDoesNotSpanTwoRows() {
+        // Свободны только 10F, 11A и 11B: три места подряд по номерам, но в разных рядах
+        FlightSeatMap seatMap = seatMap(12, Set.of("10F", "11A", "11B"));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 3, 10)).isEmpty();
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 2, 10)).containsExactly(List.of("11A", "11B"));
+    }
+
+    @Test
+    void rowCrossingWordBoundaryIsReadWhole() {
+        // Ряд 11 занимает биты 60..65 и пересекает границу первого слова карты
+        FlightSeatMap seatMap = seatMap(12, Set.of("11A", "11B", "11C", "11D", "11E", "11F"));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 3, 10))
+                .containsExactly(List.of("11A", "11B", "11C"), List.of("11D", "11E", "11F"));
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 2, 10)).hasSize(4);
+    }
+
+    @Test
+    void blockDoesNotSpanAisle() {
+        // 1C и 1D стоят рядом по номерам, но между ними проход
+        assertThat(seatMap(1, Set.of("1C", "1D")).findAdjacentBlocks(SeatClass.ECONOMY, 2, 10)).isEmpty();
+        assertThat(seatMap(1, Set.of("1A", "1B", "1C", "1D", "1E", "1F"))
+                .findAdjacentBlocks(SeatClass.ECONOMY, 4, 10)).isEmpty();
+    }
+
+    @Test
+    void seatAcrossAisleIsNotCountedAsSingleSeat() {
+        // Свободное место за проходом не остается одиночным из-за блока по другую сторону
+        FlightSeatMap seatMap = seatMap(1, Set.of("1B", "1C", "1D", "1E"));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 2, 10))
+                .containsExactly(List.of("1B", "1C"), List.of("1D", "1E"));
+    }
+
+    @Test
+    void blocksAtRowEdgesLeavingNoSingleSeatRankFirst() {
+        // Ряд 1: свободны A-C, любой блок из двух оставляет одиночное место.
+        // Ряд 2: свободны только E-F у края ряда, блок не оставляет одиночных мест
+        FlightSeatMap seatMap = seatMap(2, Set.of("1A", "1B", "1C", "2E", "2F"));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 2, 10))
+                .containsExactly(List.of("2E", "2F"), List.of("1A", "1B"), List.of("1B", "1C"));
+    }
+
+    @Test
+    void takenSeatSplitsBlock() {
+        FlightSeatMap seatMap = seatMap(1, Set.of("1A", "1B", "1C", "1D", "1E", "1F"));
+
+        seatMap.markTaken(seatId(1, 'C'));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 3, 10)).containsExactly(List.of("1D", "1E", "1F"));
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 4, 10)).isEmpty();
+    }
+
+    @Test
+    void partyLargerThanRowFindsNothing() {
+        FlightSeatMap seatMap = seatMap(3, Set.of("1A", "1B", "1C", "1D", "1E", "1F", "2A"));
+
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.ECONOMY, 7, 10)).isEmpty();
+        assertThat(seatMap.findAdjacentBlocks(SeatClass.BUSINESS, 1, 10)).isEmpty();
+    }
+
+    // Эконом-класс из rows рядов по шесть мест; свободны только перечисленные места
+    private static FlightSeatMap seatMap(int rows, Set<String> free) {
+        List<SeatDTO> seats = new ArrayList<>();
+        for (int row = 1; row <= rows; row++) {
+            for (char letter : LETTERS.toCharArray()) {
+                String number = row + String.valueOf(letter);
+                seats.add(new SeatDTO(seatId(row, letter), 1L, number, SeatClass.ECONOMY, free.contains(number)));
+            }
+        }
+        return new FlightSeatMap(1L, seats);
+    }
+
+    private static Long seatId(int row, char letter) {
+        return row * 10L + LETTERS.indexOf(letter);
+    }
+}
@@ -0,0 +1,102 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.ConnectionSearchResultDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.dto.ItineraryDTO;
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.service.cache.FlightCacheVersions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты поиска стыковок: недоминируемые метки по (время прилета, цена)
+ * и запрет маршрутов, возвращающихся в город вылета.
+ */
+class ConnectionSearchServiceTest {
+
+    private final LocalDate day = LocalDate.now().plusDays(5);
+
+    @Test
+    void directFlightDoesNotHideCheaperConnection() {
+        ConnectionSearchService service = serviceFor(List.of(
+                flight(1, "Москва", "Сочи", day.atTime(8, 0), day.atTime(10, 0), 500),
+                flight(2, "Москва", "Казань", day.atTime(7, 0), day.atTime(8, 0), 100),
+                flight(3, "Казань", "Сочи", day.atTime(9, 0), day.atTime(11, 0), 100)));
+
+        ConnectionSearchResultDTO result = service.search("Москва", "Сочи", day);
+
+        assertThat(result.getCheapest()).extracting(ConnectionSearchServiceTest::legIds)
+                .containsExactly(List.of(2L, 3L));
+        assertThat(result.getCheapest().get(0).getTotalPrice()).isEqualByComparingTo("200");
+    }
+
+    @Test
+    void connectionDominatedByDirectFlightIsDropped() {
+        ConnectionSearchService service = serviceFor(List.of(
+                flight(1, "Москва", "Сочи", day.atTime(8, 0), day.atTime(10, 0), 500),
+                flight(2, "Москва", "Екатеринбург", day.atTime(6, 0), day.atTime(7, 0), 400),
+                flight(3, "Екатеринбург", "Сочи", day.atTime(8, 0), day.atTime(12, 0), 300)));
+
+        ConnectionSearchResultDTO result = service.search("Москва", "Сочи", day);
+
+        assertThat(result.getCheapest()).isEmpty();
+        assertThat(result.getEarliestArrival()).isEmpty();
+    }
+
+    @Test
+    void connectionsNeverReturnToOriginCity() {
+        // Через Москву повторно маршрут дешевле (120), но возвращаться в город вылета нельзя
+        ConnectionSearchService service = serviceFor(List.of(
+                flight(1, "Москва", "Казань", day.atTime(20, 0), day.atTime(21, 0), 100),
+                flight(2, "Казань", "Москва", day.atTime(22, 0), day.atTime(23, 0), 10),
+                flight(3, "Москва", "Сочи", day.plusDays(1).atTime(1, 0), day.plusDays(1).atTime(3, 0), 10),
+                flight(4, "Казань", "Сочи", day.plusDays(1).atTime(0, 0), day.plusDays(1).atTime(2, 0), 300)));
+
+        ConnectionSearchResultDTO result = service.search("Москва", "Сочи", day);
+
+        assertThat(result.getCheapest()).extracting(ConnectionSearchServiceTest::legIds)
+                .containsExactly(List.of(1L, 4L));
+        assertThat(result.getEarliestArrival()).extracting(ConnectionSearchServiceTest::legIds)
+                .containsExactly(List.of(1L, 4L));
+    }
+
+    @Test
+    void soldOutLegIsSkipped() {
+        FlightSummaryDTO soldOut = new FlightSummaryDTO(3L, "AR3", "Казань", "Сочи",
+                day.atTime(9, 0), day.atTime(11, 0), BigDecimal.valueOf(100), "Airline", "A320", 180,
+                FlightStatus.SCHEDULED, 0);
+        ConnectionSearchService service = serviceFor(List.of(
+                flight(2, "Москва", "Казань", day.atTime(7, 0), day.atTime(8, 0), 100), soldOut));
+
+        assertThat(service.search("Москва", "Сочи", day).getCheapest()).isEmpty();
+    }
+
+    private static ConnectionSearchService serviceFor(List<FlightSummaryDTO> flights) {
+        FlightRepository flightRepository = mock(FlightRepository.class);
+        when(flightRepository.findSummariesDepartingFrom(any())).thenReturn(flights);
+        FlightSearchIndex index = new FlightSearchIndex(flightRepository, mock(FlightCacheVersions.class));
+        index.rebuild();
+        return new ConnectionSearchService(index, Duration.ofMinutes(45), Duration.ofHours(12), 20_000, 5);
+    }
+
+    private static FlightSummaryDTO flight(long id, String from, String to,
+                                           LocalDateTime departure, LocalDateTime arrival, int price) {
+        return new FlightSummaryDTO(id, "AR" + id, from, to, departure, arrival, BigDecimal.valueOf(price),
+                "Airline", "A320", 180, FlightStatus.SCHEDULED, 100);
+    }
+
+    private static List<Long> legIds(ItineraryDTO itinerary) {
+        return itinerary.getLegs().stream().map(FlightSummaryDTO::getId).toList();
+    }
+}
@@ -0,0 +1,145 @@
+package com.bogdan.aeroreserve.service.search;
+
+import com.bogdan.aeroreserve.dto.FlightCursor;
+import com.bogdan.aeroreserve.dto.FlightPageDTO;
+import com.bogdan.aeroreserve.dto.FlightSummaryDTO;
+import com.bogdan.aeroreserve.enums.FlightStatus;
+import com.bogdan.aeroreserve.event.SeatAvailabilityChangedEvent;
+import com.bogdan.aeroreserve.repository.FlightRepository;
+import com.bogdan.aeroreserve.service.cache.FlightCacheVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты in-memory индекса поиска: постраничное слияние маршрутов в обоих направлениях,
+ * фильтры по городам и дате, обновление счетчиков мест из таблицы flights и инвалидация
+ * недели календаря цен при распродаже рейса.
+ */
+class FlightSearchIndexTest {
+
+    private final LocalDate day = LocalDate.now().plusDays(3);
+    private final FlightRepository flightRepository = mock(FlightRepository.class);
+    private final FlightCacheVersions cacheVersions = mock(FlightCacheVersions.class);
+    private final FlightSearchIndex index = new FlightSearchIndex(flightRepository, cacheVersions);
+    private final List<FlightSummaryDTO> flights = new ArrayList<>();
+
+    @BeforeEach
+    void buildIndex() {
+        long id = 1;
+        // Рейсы трех маршрутов чередуются по времени; у двух рейсов одинаковое время вылета
+        for (int hour = 0; hour < 8; hour++) {
+            flights.add(flight(id++, "Москва", "Казань", day.atTime(hour, 0)));
+            flights.add(flight(id++, "Москва", "Сочи", day.atTime(hour, 20)));
+            flights.add(flight(id++, "Казань", "Сочи", day.atTime(hour, 20)));
+        }
+        flights.add(flight(id, "Москва", "Сочи", day.plusDays(1).atTime(9, 0)));
+        when(flightRepository.findSummariesDepartingFrom(any())).thenReturn(flights);
+        index.rebuild();
+    }
+
+    @Test
+    void rebuildLoadsOnlyUpcomingFlights() {
+        verify(flightRepository).findSummariesDepartingFrom(LocalDate.now().atStartOfDay());
+    }
+
+    @Test
+    void forwardPagesFollowGlobalDepartureOrder() {
+        List<FlightSummaryDTO> expected = sorted(flights);
+
+        List<FlightSummaryDTO> collected = new ArrayList<>();
+        FlightPageDTO page = index.search(null, null, null, null, 4);
+        collected.addAll(page.getFlights());
+        while (page.getNextToken() != null) {
+            page = index.search(null, null, null, FlightCursor.decode(page.getNextToken()).orElseThrow(), 4);
+            collected.addAll(page.getFlights());
+        }
+
+        assertThat(ids(collected)).isEqualTo(ids(expected));
+        assertThat(page.getTotalItems()).isEqualTo(flights.size());
+    }
+
+    @Test
+    void backwardPageReturnsPreviousPage() {
+        FlightPageDTO first = index.search(null, null, null, null, 5);
+        FlightPageDTO second = index.search(null, null, null, FlightCursor.decode(first.getNextToken()).orElseThrow(), 5);
+
+        FlightPageDTO back = index.search(null, null, null,
+                FlightCursor.decode(second.getPreviousToken()).orElseThrow(), 5);
+
+        assertThat(ids(back.getFlights())).isEqualTo(ids(first.getFlights()));
+        assertThat(back.getPreviousToken()).isNull();
+        assertThat(back.getNextToken()).isNotNull();
+    }
+
+    @Test
+    void filtersByCitySubstringsAndDate() {
+        FlightPageDTO page = index.search("моск", "соч", day, null, 100);
+
+        assertThat(page.getFlights()).hasSize(8)
+                .allMatch(flight -> flight.getDepartureCity().equals("Москва")
+                        && flight.getArrivalCity().equals("Сочи")
+                        && flight.getDepartureTime().toLocalDate().equals(day));
+        assertThat(page.getTotalItems()).isEqualTo(8);
+        assertThat(ids(page.getFlights())).isSorted();
+    }
+
+    @Test
+    void refreshAvailabilityAppliesCountersFromFlightsTable() {
+        List<Object[]> counters = new ArrayList<>();
+        counters.add(new Object[]{1L, 0});
+        when(flightRepository.findAvailableSeatCountersDepartingFrom(any())).thenReturn(counters);
+
+        index.refreshAvailability();
+
+        FlightSummaryDTO first = index.search("москва", "казань", day, null, 1).getFlights().get(0);
+        assertThat(first.getId()).isEqualTo(1L);
+        assertThat(first.getAvailableSeats()).isZero();
+    }
+
+    @Test
+    void soldOutAndReopenedFlightBumpsFareCalendarWeek() {
+        List<Object[]> counters = new ArrayList<>();
+        counters.add(new Object[]{1L, 1});
+        when(flightRepository.findAvailableSeatCountersDepartingFrom(any())).thenReturn(counters);
+        index.refreshAvailability();
+        verify(cacheVersions, never()).availabilityChanged(any());
+
+        index.onSeatAvailabilityChanged(new SeatAvailabilityChangedEvent(1L, 10L, false));
+        verify(cacheVersions).availabilityChanged(argThat(flight -> flight.getId() == 1L));
+
+        index.onSeatAvailabilityChanged(new SeatAvailabilityChangedEvent(1L, 10L, true));
+        index.onSeatAvailabilityChanged(new SeatAvailabilityChangedEvent(1L, 11L, true));
+        verify(cacheVersions, times(2)).availabilityChanged(argThat(flight -> flight.getId() == 1L));
+    }
+
+    private static FlightSummaryDTO flight(long id, String from, String to, LocalDateTime departure) {
+        return new FlightSummaryDTO(id, "AR" + id, from, to, departure, departure.plusHours(2),
+                BigDecimal.valueOf(100 + id), "Airline", "A320", 180, FlightStatus.SCHEDULED, 100);
+    }
+
+    private static List<FlightSummaryDTO> sorted(List<FlightSummaryDTO> flights) {
+        return flights.stream()
+                .sorted(Comparator.comparing(FlightSummaryDTO::getDepartureTime).thenComparing(FlightSummaryDTO::getId))
+                .toList();
+    }
+
+    private static List<Long> ids(List<FlightSummaryDTO> flights) {
+        return flights.stream().map(FlightSummaryDTO::getId).toList();
+    }
+}